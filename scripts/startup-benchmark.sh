@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# Time to the first GET /api/books/{id} answer and resident memory at that
+# point, for each startup mode. Build first with:
+#
+#   ./mvnw -Pcds package -DskipTests
+#
+# Usage: scripts/startup-benchmark.sh [runs] [extra application args...]
+# Each mode is started "runs" times (default 5) and the median is reported.
+# Linux only: memory is read from /proc.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+shift || true
+JAR=target/library-0.0.1-SNAPSHOT.jar
+ARCHIVE=target/library.jsa
+PORT=${PORT:-8097}
+JAVA=${JAVA:-java}
+
+if [[ ! -f $JAR || ! -d target/lib || ! -f $ARCHIVE ]]; then
+    echo "Missing $JAR, target/lib or $ARCHIVE; run ./mvnw -Pcds package -DskipTests first" >&2
+    exit 1
+fi
+
+declare -A MODES=(
+    [default]=""
+    [lazy]="--spring.profiles.active=fast-start"
+    [cds]="-XX:SharedArchiveFile=$ARCHIVE"
+    [lazy+cds]="-XX:SharedArchiveFile=$ARCHIVE --spring.profiles.active=fast-start"
+)
+
+# one run: prints "<ms to first answer> <rss in MB>"
+measure() {
+    local jvm_args=() app_args=()
+    for arg in $1; do
+        if [[ $arg == -XX:* ]]; then jvm_args+=("$arg"); else app_args+=("$arg"); fi
+    done
+    local start pid elapsed rss
+    start=$(date +%s%N)
+    "$JAVA" "${jvm_args[@]}" -jar "$JAR" --server.port="$PORT" "${app_args[@]}" "${@:2}" > /dev/null 2>&1 &
+    pid=$!
+    # any status from the controller will do; an empty catalog answers 404
+    until curl -s -o /dev/null http://localhost:"$PORT"/api/books/1; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Application exited during startup" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(awk '/VmRSS/ { print int($2 / 1024) }' /proc/"$pid"/status)
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed $rss"
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+printf "%-10s %12s %10s\n" mode "first GET ms" "RSS MB"
+for mode in default lazy cds lazy+cds; do
+    results=()
+    for ((i = 0; i < RUNS; i++)); do
+        results+=("$(measure "${MODES[$mode]}" "$@")")
+    done
+    printf "%-10s %12s %10s\n" "$mode" \
+        "$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)" \
+        "$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)"
+done
@@ -1,16 +1,19 @@
 package com.manocle.library;
 
-import org.modelmapper.ModelMapper;
+import com.manocle.library.api.mapper.BookMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
+@EnableCaching
 public class LibraryApplication {
 	
 	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
+	public BookMapper bookMapper(){
+		return Mappers.getMapper(BookMapper.class);
 	}
 
 	public static void main(String[] args) {
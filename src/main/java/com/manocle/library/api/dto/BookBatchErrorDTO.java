@@ -0,0 +1,19 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchErrorDTO {
+
+    private int index;
+
+    private String isbn;
+
+    private List<String> errors;
+
+}
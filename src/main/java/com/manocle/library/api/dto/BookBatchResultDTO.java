@@ -0,0 +1,21 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResultDTO {
+
+    private int received;
+
+    private int created;
+
+    @Builder.Default
+    private List<BookBatchErrorDTO> errors = new ArrayList<>();
+
+}
@@ -3,6 +3,7 @@ package com.manocle.library.api.dto;
 import lombok.*;
 
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 
 @Data
 @Builder
@@ -13,12 +14,15 @@ public class BookDTO {
     private Long id;
 
     @NotEmpty
+    @Size(max = 255)
     private String title;
 
     @NotEmpty
+    @Size(max = 255)
     private String author;
 
     @NotEmpty
+    @Size(max = 255)
     private String isbn;
 
 }
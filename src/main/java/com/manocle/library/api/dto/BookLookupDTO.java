@@ -0,0 +1,17 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupDTO {
+
+    private List<Long> ids;
+
+    private List<String> isbns;
+
+}
@@ -0,0 +1,21 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * One entry per requested key, in request order, null where no book was found.
+ * {@code missing} lists the positions of those nulls.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupResultDTO {
+
+    private List<BookDTO> books;
+
+    private List<Integer> missing;
+
+}
@@ -0,0 +1,25 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A listing page without the {@code Page} metadata that can be derived from
+ * these fields.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageDTO {
+
+    private List<BookDTO> content;
+
+    private int page;
+
+    private int size;
+
+    private long totalElements;
+
+}
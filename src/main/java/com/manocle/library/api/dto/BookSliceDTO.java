@@ -0,0 +1,21 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSliceDTO {
+
+    private List<BookDTO> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    private String next;
+
+}
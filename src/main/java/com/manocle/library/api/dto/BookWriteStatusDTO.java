@@ -0,0 +1,19 @@
+package com.manocle.library.api.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookWriteStatusDTO {
+
+    private String trackingId;
+
+    private String status;
+
+    private Long bookId;
+
+    private String error;
+
+}
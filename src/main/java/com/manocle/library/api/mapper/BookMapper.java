@@ -0,0 +1,31 @@
+package com.manocle.library.api.mapper;
+
+import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.dto.BookPageDTO;
+import com.manocle.library.model.entity.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+@Mapper
+public interface BookMapper {
+
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookDTO dto);
+
+    BookDTO toDTO(Book book);
+
+    List<BookDTO> toDTO(List<Book> books);
+
+    default Page<BookDTO> toDTO(Page<Book> page, Pageable pageRequest) {
+        return new PageImpl<BookDTO>(toDTO(page.getContent()), pageRequest, page.getTotalElements());
+    }
+
+    default BookPageDTO toPageDTO(Page<Book> page) {
+        return new BookPageDTO(toDTO(page.getContent()), page.getNumber(), page.getSize(), page.getTotalElements());
+    }
+}
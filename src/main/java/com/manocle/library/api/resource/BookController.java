@@ -1,89 +1,389 @@
 package com.manocle.library.api.resource;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manocle.library.api.dto.BookBatchErrorDTO;
+import com.manocle.library.api.dto.BookBatchResultDTO;
 import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.dto.BookLookupDTO;
+import com.manocle.library.api.dto.BookLookupResultDTO;
+import com.manocle.library.api.dto.BookPageDTO;
+import com.manocle.library.api.dto.BookSliceDTO;
+import com.manocle.library.api.dto.BookWriteStatusDTO;
 import com.manocle.library.api.exceptions.handler.ApiErrors;
+import com.manocle.library.api.mapper.BookMapper;
 import com.manocle.library.exception.BusinessException;
 import com.manocle.library.model.entity.Book;
 import com.manocle.library.service.BookService;
-import org.modelmapper.ModelMapper;
+import com.manocle.library.service.CountStrategy;
+import com.manocle.library.service.CountedPage;
+import com.manocle.library.service.writebehind.BookWriteBehindQueue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
-import java.util.List;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/books")
 public class BookController {
 
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    static final String TOTAL_COUNT_STRATEGY = "X-Total-Count-Strategy";
+
+    private static final int MAX_SLICE_SIZE = 2000;
+
     private BookService service;
-    private ModelMapper modelMapper;
+    private BookMapper mapper;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private int importChunkSize;
+    private int exportFlushRows;
+    private int lookupMaxKeys;
+    private Counter notFound;
+    private BookWriteBehindQueue writeBehind;
+    private Duration catalogMaxAge;
 
-    public BookController(BookService service, ModelMapper modelMapper) {
+    public BookController(BookService service, BookMapper mapper, ObjectMapper objectMapper, Validator validator,
+                          @Value("${library.import.chunk-size:500}") int importChunkSize,
+                          @Value("${library.export.flush-rows:1000}") int exportFlushRows,
+                          @Value("${library.lookup.max-keys:1000}") int lookupMaxKeys,
+                          ObjectProvider<BookWriteBehindQueue> writeBehind,
+                          @Value("${library.catalog-etag.max-age:5s}") Duration catalogMaxAge) {
         this.service = service;
-        this.modelMapper = modelMapper;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.importChunkSize = importChunkSize;
+        this.exportFlushRows = exportFlushRows;
+        this.lookupMaxKeys = lookupMaxKeys;
+        this.notFound = Metrics.counter("library.books.not.found");
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.catalogMaxAge = catalogMaxAge;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public BookDTO create(@RequestBody @Valid BookDTO dto){
-        Book entity = modelMapper.map(dto,Book.class);
+        Book entity = mapper.toEntity(dto);
 
         entity = service.save(entity);
 
-        return modelMapper.map(entity,BookDTO.class);
+        return mapper.toDTO(entity);
+    }
+
+    /**
+     * With write-behind enabled, {@code Prefer: respond-async} queues the book and
+     * answers 202 with a tracking id instead of waiting for the insert.
+     */
+    @PostMapping(headers = "Prefer=respond-async")
+    public ResponseEntity<?> createAsync(@RequestBody @Valid BookDTO dto){
+        if (writeBehind == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(create(dto));
+        }
+        BookWriteBehindQueue.Write write = writeBehind.accept(mapper.toEntity(dto))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Fila de escrita cheia"));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/books/writes/" + write.getTrackingId()))
+                .header("Preference-Applied", "respond-async")
+                .body(toDTO(write));
+    }
+
+    @GetMapping("writes/{trackingId}")
+    public BookWriteStatusDTO writeStatus(@PathVariable String trackingId){
+        return Optional.ofNullable(writeBehind)
+                .flatMap(queue -> queue.status(trackingId))
+                .map(BookController::toDTO)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    private static BookWriteStatusDTO toDTO(BookWriteBehindQueue.Write write) {
+        return new BookWriteStatusDTO(write.getTrackingId(), write.getStatus().name(), write.getBookId(), write.getError());
+    }
+
+    /**
+     * Imports the books in chunks as they are read, so earlier chunks are
+     * already committed when a later element turns out to be malformed. A
+     * payload that breaks before any commit is rejected with 400. Past that point,
+     * the books read so far are imported and the result reports the break as
+     * an error at its index; {@code received} counts the elements before it.
+     */
+    @PostMapping(value = "batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BookBatchResultDTO createBatch(InputStream body) throws IOException {
+        BookBatchResultDTO result = new BookBatchResultDTO();
+        Map<Integer, Book> chunk = new LinkedHashMap<>();
+        int index = 0;
+        boolean committed = false;
+
+        try (MappingIterator<BookDTO> items = objectMapper.readerFor(BookDTO.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                BookDTO dto = items.nextValue();
+                Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+                if (violations.isEmpty()) {
+                    chunk.put(index, mapper.toEntity(dto));
+                } else {
+                    List<String> errors = violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.toList());
+                    result.getErrors().add(new BookBatchErrorDTO(index, dto.getIsbn(), errors));
+                }
+                index++;
+
+                if (chunk.size() == importChunkSize) {
+                    importChunk(chunk, result);
+                    committed = true;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            if (!committed) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getOriginalMessage());
+            }
+            importChunk(chunk, result);
+            result.getErrors().add(new BookBatchErrorDTO(index, null, Arrays.asList("JSON inválido: " + e.getOriginalMessage())));
+        }
+        importChunk(chunk, result);
+
+        result.setReceived(index);
+        return result;
+    }
+
+    private void importChunk(Map<Integer, Book> chunk, BookBatchResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<Book> saved = service.saveAll(new ArrayList<>(chunk.values()));
+        Set<Book> savedBooks = Collections.newSetFromMap(new IdentityHashMap<>());
+        savedBooks.addAll(saved);
+        chunk.forEach((position, book) -> {
+            if (!savedBooks.contains(book)) {
+                result.getErrors().add(duplicatedIsbn(position, book));
+            }
+        });
+        result.setCreated(result.getCreated() + saved.size());
+        chunk.clear();
+    }
+
+    private BookBatchErrorDTO duplicatedIsbn(int position, Book book) {
+        return new BookBatchErrorDTO(position, book.getIsbn(), Arrays.asList("Isbn já cadastrado"));
     }
 
     @GetMapping("{id}")
-    public BookDTO get(@PathVariable Long id){
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, WebRequest request){
 
-        return service
+        Book book = service
                 .getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                .orElseThrow(this::notFound);
+
+        String etag = BookETag.of(book);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(mapper.toDTO(book));
+    }
 
+    /**
+     * Resolves many ids or ISBNs in one call. Books already cached are not read
+     * again; the rest are loaded with chunked {@code in} queries.
+     */
+    @PostMapping("lookup")
+    public BookLookupResultDTO lookup(@RequestBody BookLookupDTO request){
+        boolean byId = request.getIds() != null;
+        List<?> keys = byId ? request.getIds() : request.getIsbns();
+        if (byId == (request.getIsbns() != null) || keys.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ids ou isbns");
+        }
+        if (keys.size() > lookupMaxKeys) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe no máximo " + lookupMaxKeys + " chaves");
+        }
 
+        Map<?, Book> found = byId ? service.getByIds(request.getIds()) : service.getByIsbns(request.getIsbns());
+        List<BookDTO> books = new ArrayList<>(keys.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Object key : keys) {
+            Book book = found.get(key);
+            if (book == null) {
+                missing.add(books.size());
+            }
+            books.add(book == null ? null : mapper.toDTO(book));
+        }
+        return new BookLookupResultDTO(books, missing);
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteBook(@PathVariable Long id){
 
-        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        service.delete(book);
+        if (!service.deleteById(id)) {
+            throw notFound();
+        }
 
     }
 
     @PutMapping("{id}")
-    public BookDTO update(@PathVariable Long id, BookDTO dto){
-        return service.getById(id).map( book ->{
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Book changes = mapper.toEntity(dto);
+        changes.setVersion(BookETag.version(ifMatch, id));
 
-                    book.setAuthor(dto.getAuthor());
-                    book.setTitle(dto.getTitle());
-                    book = service.update(book);
-                    return modelMapper.map(book, BookDTO.class);
+        Book book = service.update(id, changes)
+                .orElseThrow(this::notFound);
+        return ResponseEntity.ok().eTag(BookETag.of(book)).body(mapper.toDTO(book));
+    }
 
-                })
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    private ResponseStatusException notFound() {
+        notFound.increment();
+        return new ResponseStatusException(HttpStatus.NOT_FOUND);
     }
 
     @GetMapping
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
-        Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
-                .collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+    public ResponseEntity<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest,
+                                              @RequestParam(required = false) String count, ServletWebRequest request){
+        String etag = BookETag.ofCatalog(service.catalogVersion(), System.currentTimeMillis(), catalogMaxAge);
+        if (catalogNotModified(etag, request)) {
+            return null;
+        }
+
+        Book filter = mapper.toEntity(dto);
+        CountedPage<Book> result = service.find(filter, pageRequest, countStrategy(count));
+        return ResponseEntity.ok().eTag(etag)
+                .header(TOTAL_COUNT_STRATEGY, result.getCountStrategy().name().toLowerCase(Locale.ROOT))
+                .body(mapper.toDTO(result, pageRequest));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_CBOR_VALUE, BookController.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BookPageDTO> findCompact(BookDTO dto, Pageable pageRequest,
+                                                   @RequestParam(required = false) String count, ServletWebRequest request){
+        String etag = BookETag.ofCatalog(service.catalogVersion(), System.currentTimeMillis(), catalogMaxAge);
+        if (catalogNotModified(etag, request)) {
+            return null;
+        }
+
+        Book filter = mapper.toEntity(dto);
+        CountedPage<Book> result = service.find(filter, pageRequest, countStrategy(count));
+        return ResponseEntity.ok().eTag(etag)
+                .header(TOTAL_COUNT_STRATEGY, result.getCountStrategy().name().toLowerCase(Locale.ROOT))
+                .body(mapper.toPageDTO(result));
+    }
+
+    private boolean catalogNotModified(String etag, ServletWebRequest request) {
+        // JSON, CBOR and Smile listings share the catalog tag, so caches have to key on Accept too;
+        // set before the check so a 304 carries them as well
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(catalogMaxAge).getHeaderValue());
+        return request.checkNotModified(etag);
+    }
+
+    private static CountStrategy countStrategy(String count) {
+        if (count == null) {
+            return CountStrategy.EXACT;
+        }
+        try {
+            return CountStrategy.valueOf(count.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count deve ser exact, cached, estimated ou none");
+        }
+    }
+
+    @GetMapping("search")
+    public List<BookDTO> search(@RequestParam String q, @RequestParam(defaultValue = "20") int size){
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + MAX_SLICE_SIZE);
+        }
+        return mapper.toDTO(service.search(q, size));
+    }
+
+    @GetMapping(params = "after")
+    public BookSliceDTO findAfter(BookDTO dto, @RequestParam String after, @RequestParam(defaultValue = "20") int size){
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + MAX_SLICE_SIZE);
+        }
+        Book filter = mapper.toEntity(dto);
+        Slice<Book> result = service.findAfter(filter, BookCursor.decode(after), size);
+
+        List<BookDTO> content = mapper.toDTO(result.getContent());
+        String next = result.hasNext() ? BookCursor.encode(content.get(content.size() - 1).getId()) : null;
+        return new BookSliceDTO(content, size, result.hasNext(), next);
     }
 
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        BookExportWriter.Format exportFormat = exportFormat(format, accept);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            BookExportWriter writer = new BookExportWriter(out, exportFormat, gzip, objectMapper, exportFlushRows);
+            try {
+                service.export(book -> {
+                    try {
+                        writer.write(mapper.toDTO(book));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=books." + exportFormat.name().toLowerCase(Locale.ROOT))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static BookExportWriter.Format exportFormat(String format, String accept) {
+        if (format != null) {
+            try {
+                return BookExportWriter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format deve ser ndjson ou csv");
+            }
+        }
+        if (accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(BookExportWriter.TEXT_CSV::includes)) {
+            return BookExportWriter.Format.CSV;
+        }
+        return BookExportWriter.Format.NDJSON;
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -93,6 +393,11 @@ public class BookController {
 
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public void handleOptimisticLockingFailure(){
+    }
+
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleBusinessException(BusinessException businessException){
@@ -0,0 +1,51 @@
+package com.manocle.library.api.resource;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Entity tags for book resources: strong tags derived from the id and the
+ * {@code @Version} of a single book, weak tags derived from the catalog
+ * version for listings.
+ * <p>
+ * The catalog version only tracks the writes made through this instance, so
+ * a listing tag also carries the time window it was issued in. Once the
+ * window ends the tag no longer matches, and a write made through another
+ * instance shows up within {@code maxAge}.
+ */
+final class BookETag {
+
+    private BookETag() {
+    }
+
+    static String of(Book book) {
+        return "\"" + book.getId() + "-" + book.getVersion() + "\"";
+    }
+
+    static String ofCatalog(long catalogVersion, long nowMillis, Duration maxAge) {
+        return "W/\"" + catalogVersion + "-" + nowMillis / Math.max(maxAge.toMillis(), 1) + "\"";
+    }
+
+    static Long version(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        String prefix = id + "-";
+        if (!value.startsWith(prefix)) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+        }
+        try {
+            return Long.valueOf(value.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.manocle.library.api.resource;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.manocle.library.api.dto.BookDTO;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes exported books to a response body as NDJSON or CSV. Output goes through
+ * a fixed-size buffer and is flushed every {@code flushRows} rows, so memory use
+ * does not depend on how many books are exported.
+ */
+final class BookExportWriter {
+
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON),
+        CSV(TEXT_CSV);
+
+        final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private final int flushRows;
+    private final GZIPOutputStream gzip;
+    private final Writer writer;
+    private final JsonGenerator generator;
+    private final ObjectWriter json;
+    private int pending;
+
+    BookExportWriter(OutputStream out, Format format, boolean compress, ObjectMapper objectMapper, int flushRows)
+            throws IOException {
+        this.format = format;
+        this.flushRows = flushRows;
+        this.gzip = compress ? new GZIPOutputStream(out, BUFFER_SIZE, true) : null;
+        this.writer = new BufferedWriter(new OutputStreamWriter(compress ? gzip : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.NDJSON) {
+            this.generator = objectMapper.getFactory()
+                    .createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            this.json = objectMapper.writerFor(BookDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        } else {
+            this.generator = null;
+            this.json = null;
+            writer.write("id,title,author,isbn\r\n");
+        }
+    }
+
+    void write(BookDTO book) throws IOException {
+        if (format == Format.NDJSON) {
+            json.writeValue(generator, book);
+            generator.writeRaw('\n');
+        } else {
+            writer.write(String.valueOf(book.getId()));
+            writer.write(',');
+            writeCsvField(book.getTitle());
+            writer.write(',');
+            writeCsvField(book.getAuthor());
+            writer.write(',');
+            writeCsvField(book.getIsbn());
+            writer.write("\r\n");
+        }
+        if (++pending == flushRows) {
+            flush();
+        }
+    }
+
+    void finish() throws IOException {
+        flush();
+        if (gzip != null) {
+            gzip.finish();
+            gzip.flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+        pending = 0;
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
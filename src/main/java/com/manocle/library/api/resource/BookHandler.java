@@ -0,0 +1,175 @@
+package com.manocle.library.api.resource;
+
+import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.exceptions.handler.ApiErrors;
+import com.manocle.library.api.mapper.BookMapper;
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.ReactiveBookService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Functional handlers behind the reactive {@code /api/books} routes. They keep
+ * the contract of {@link BookController}: same payloads, status codes, ETags and
+ * query-by-example filtering.
+ */
+@Component
+@ConditionalOnProperty(name = "library.book-service", havingValue = "reactive")
+public class BookHandler {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 2000;
+
+    private ReactiveBookService service;
+    private BookMapper mapper;
+    private SpringValidatorAdapter validator;
+    private Duration catalogMaxAge;
+
+    public BookHandler(ReactiveBookService service, BookMapper mapper, Validator validator,
+                       @Value("${library.catalog-etag.max-age:5s}") Duration catalogMaxAge) {
+        this.service = service;
+        this.mapper = mapper;
+        this.validator = new SpringValidatorAdapter(validator);
+        this.catalogMaxAge = catalogMaxAge;
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(BookDTO.class)
+                .flatMap(dto -> {
+                    BeanPropertyBindingResult errors = new BeanPropertyBindingResult(dto, "bookDTO");
+                    validator.validate(dto, errors);
+                    if (errors.hasErrors()) {
+                        return ServerResponse.badRequest().bodyValue(new ApiErrors(errors));
+                    }
+                    return service.save(mapper.toEntity(dto))
+                            .flatMap(book -> ServerResponse.status(HttpStatus.CREATED).bodyValue(mapper.toDTO(book)));
+                })
+                .onErrorResume(BusinessException.class, e -> ServerResponse.badRequest().bodyValue(new ApiErrors(e)));
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        return service.getById(id(request))
+                .flatMap(book -> {
+                    String etag = BookETag.of(book);
+                    if (notModified(request, etag)) {
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ServerResponse.ok().eTag(etag).bodyValue(mapper.toDTO(book));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return service.deleteById(id(request))
+                .flatMap(deleted -> deleted
+                        ? ServerResponse.noContent().build()
+                        : ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        Long id = id(request);
+        Long version = BookETag.version(request.headers().firstHeader(HttpHeaders.IF_MATCH), id);
+        return request.bodyToMono(BookDTO.class)
+                .flatMap(dto -> {
+                    Book changes = mapper.toEntity(dto);
+                    changes.setVersion(version);
+                    return service.update(id, changes);
+                })
+                .flatMap(book -> ServerResponse.ok().eTag(BookETag.of(book)).bodyValue(mapper.toDTO(book)))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class,
+                        e -> ServerResponse.status(HttpStatus.PRECONDITION_FAILED).build());
+    }
+
+    public Mono<ServerResponse> find(ServerRequest request) {
+        Book filter = Book.builder()
+                .title(request.queryParam("title").orElse(null))
+                .author(request.queryParam("author").orElse(null))
+                .isbn(request.queryParam("isbn").orElse(null))
+                .build();
+        int page = intParam(request, "page", 0, 0);
+        int size = Math.min(intParam(request, "size", DEFAULT_PAGE_SIZE, 1), MAX_PAGE_SIZE);
+        PageRequest pageRequest = PageRequest.of(page, size, sort(request.queryParams().get("sort")));
+
+        String etag = BookETag.ofCatalog(service.catalogVersion(), System.currentTimeMillis(), catalogMaxAge);
+        CacheControl cacheControl = CacheControl.maxAge(catalogMaxAge);
+        if (notModified(request, etag)) {
+            return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return service.find(filter, pageRequest)
+                .map(result -> mapper.toDTO(result, pageRequest))
+                .flatMap(result -> ServerResponse.ok().eTag(etag).cacheControl(cacheControl).bodyValue(result));
+    }
+
+    private static int intParam(ServerRequest request, String name, int defaultValue, int min) {
+        String value = request.queryParam(name).orElse(null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // falls through to the same 400 as an out-of-range value
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " deve ser um número maior ou igual a " + min);
+    }
+
+    /**
+     * Weak comparison against every tag in If-None-Match, as the servlet
+     * {@code checkNotModified} does.
+     */
+    private static boolean notModified(ServerRequest request, String etag) {
+        String opaque = opaque(etag);
+        return request.headers().header(HttpHeaders.IF_NONE_MATCH).stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || opaque(tag).equals(opaque));
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static Long id(ServerRequest request) {
+        try {
+            return Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static Sort sort(List<String> parameters) {
+        if (parameters == null) {
+            return Sort.unsorted();
+        }
+        return Sort.by(parameters.stream()
+                .map(parameter -> parameter.split(","))
+                .map(parts -> parts.length > 1 && parts[1].equalsIgnoreCase("desc")
+                        ? Sort.Order.desc(parts[0])
+                        : Sort.Order.asc(parts[0]))
+                .collect(Collectors.toList()));
+    }
+}
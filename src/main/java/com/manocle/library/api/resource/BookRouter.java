@@ -0,0 +1,28 @@
+package com.manocle.library.api.resource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+@ConditionalOnProperty(name = "library.book-service", havingValue = "reactive")
+public class BookRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> bookRoutes(BookHandler handler) {
+        return route()
+                .path("/api/books", books -> books
+                        .POST("", handler::create)
+                        .GET("/{id}", handler::get)
+                        .DELETE("/{id}", handler::delete)
+                        .PUT("/{id}", handler::update)
+                        .GET("", accept(MediaType.APPLICATION_JSON, MediaType.ALL), handler::find))
+                .build();
+    }
+}
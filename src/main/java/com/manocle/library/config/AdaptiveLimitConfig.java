@@ -0,0 +1,48 @@
+package com.manocle.library.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "library.limits.enabled", havingValue = "true")
+public class AdaptiveLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdaptiveLimitFilter> adaptiveLimitFilter(
+            Environment environment,
+            @Value("${library.limits.quota.rate:0}") double quotaRate,
+            @Value("${library.limits.quota.burst:100}") int quotaBurst,
+            @Value("${library.limits.quota.client-header:}") String clientHeader,
+            @Value("${library.limits.quota.trusted-proxies:}") List<String> trustedProxies) {
+        AimdLimit reads = limit(environment, "read", 50, 400, Duration.ofMillis(250));
+        AimdLimit writes = limit(environment, "write", 20, 100, Duration.ofMillis(500));
+        ClientQuotas quotas = quotaRate > 0 ? new ClientQuotas(quotaRate, quotaBurst, System::nanoTime) : null;
+        FilterRegistrationBean<AdaptiveLimitFilter> registration = new FilterRegistrationBean<>(
+                new AdaptiveLimitFilter(reads, writes, quotas, clientHeader.isEmpty() ? null : clientHeader, trustedProxies));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private static AimdLimit limit(Environment environment, String budget, int initialLimit, int maxLimit,
+                                   Duration latencyTarget) {
+        String prefix = "library.limits." + budget + ".";
+        AimdLimit limit = new AimdLimit(
+                environment.getProperty(prefix + "initial-limit", Integer.class, initialLimit),
+                environment.getProperty(prefix + "min-limit", Integer.class, 1),
+                environment.getProperty(prefix + "max-limit", Integer.class, maxLimit),
+                environment.getProperty(prefix + "latency-target", Duration.class, latencyTarget),
+                environment.getProperty("library.limits.backoff-ratio", Double.class, 0.9));
+        Metrics.gauge("library.limits.limit", Tags.of("budget", budget), limit, AimdLimit::limit);
+        Metrics.gauge("library.limits.in-flight", Tags.of("budget", budget), limit, AimdLimit::inFlight);
+        return limit;
+    }
+}
@@ -0,0 +1,157 @@
+package com.manocle.library.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sheds load before it reaches the database. Each client first spends a token
+ * of its quota, then the request takes a slot of the read or write budget,
+ * whose {@link AimdLimit} shrinks as latency rises. Requests over quota get
+ * 429 and requests over budget get 503 at once, both with
+ * {@code Retry-After}, instead of queueing on the connection pool. An async
+ * request, such as an export, holds its slot until it completes.
+ * <p>
+ * Reads are GET and HEAD requests and batch lookups; everything else is a write.
+ * Clients are told apart by authenticated user, otherwise by remote address.
+ * A request from one of the {@code trustedProxies} is keyed on the last entry
+ * of {@code clientHeader} instead, the address that proxy saw. Anyone else can
+ * send any header, so it is ignored for them.
+ */
+public class AdaptiveLimitFilter extends OncePerRequestFilter {
+
+    private final AimdLimit reads;
+    private final AimdLimit writes;
+    private final ClientQuotas quotas;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+    private final Counter overQuota = Metrics.counter("library.limits.rejected", "reason", "quota");
+    private final Counter readsShed = Metrics.counter("library.limits.rejected", "reason", "overload", "budget", "read");
+    private final Counter writesShed = Metrics.counter("library.limits.rejected", "reason", "overload", "budget", "write");
+
+    /**
+     * @param quotas       null to leave clients unlimited
+     * @param clientHeader null to tell clients apart by user and remote address only
+     */
+    public AdaptiveLimitFilter(AimdLimit reads, AimdLimit writes, ClientQuotas quotas, String clientHeader,
+                               Collection<String> trustedProxies) {
+        this.reads = reads;
+        this.writes = writes;
+        this.quotas = quotas;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = new HashSet<>(trustedProxies);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (quotas != null) {
+            Duration wait = quotas.tryAcquire(client(request));
+            if (!wait.isZero()) {
+                overQuota.increment();
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, wait);
+                return;
+            }
+        }
+
+        boolean read = isRead(request);
+        AimdLimit limit = read ? reads : writes;
+        if (!limit.tryAcquire()) {
+            (read ? readsShed : writesShed).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Release(limit, start, response));
+            } else {
+                limit.onComplete(start, System.nanoTime(), failed);
+            }
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        Principal user = request.getUserPrincipal();
+        if (user != null) {
+            return "user:" + user.getName();
+        }
+        String address = request.getRemoteAddr();
+        if (clientHeader != null && trustedProxies.contains(address)) {
+            String forwarded = request.getHeader(clientHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            }
+        }
+        return address;
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || (HttpMethod.POST.matches(method) && request.getRequestURI().endsWith("/lookup"));
+    }
+
+    /**
+     * Frees the slot of an async request once the container completes it, which
+     * it also does after a timeout or an error.
+     */
+    private static final class Release implements AsyncListener {
+        private final AimdLimit limit;
+        private final long start;
+        private final HttpServletResponse response;
+        private volatile boolean failed;
+
+        Release(AimdLimit limit, long start, HttpServletResponse response) {
+            this.limit = limit;
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.onComplete(start, System.nanoTime(), failed || response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, Duration retryAfter) throws IOException {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.sendError(status.value());
+    }
+}
@@ -0,0 +1,71 @@
+package com.manocle.library.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit that follows latency (additive increase, multiplicative
+ * decrease). While requests finish within the latency target and at least half
+ * the limit is in use, each one raises the limit by one. A slower or failed
+ * request multiplies it by {@code backoffRatio}, at most once per target
+ * latency, so that one slow spell does not drive the limit to the minimum.
+ * Admission and completion take no lock.
+ */
+public class AimdLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final double backoffRatio;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastBackoff = new AtomicLong(Long.MIN_VALUE);
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid limit " + minLimit + ".." + maxLimit + " or backoff ratio " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = latencyTarget.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryAcquire()} and adjusts the limit to
+     * how the request went. Both times come from {@link System#nanoTime()}.
+     */
+    public void onComplete(long startNanos, long endNanos, boolean failed) {
+        int used = inFlight.getAndDecrement();
+        if (failed || endNanos - startNanos > targetNanos) {
+            long last = lastBackoff.get();
+            if ((last == Long.MIN_VALUE || endNanos - last >= targetNanos) && lastBackoff.compareAndSet(last, endNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+            }
+        } else if (used * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
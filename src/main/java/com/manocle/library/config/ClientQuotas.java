@@ -0,0 +1,59 @@
+package com.manocle.library.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets refilled at {@code rate} requests per second and
+ * holding up to {@code burst}. Each bucket is kept as a single number, the
+ * time at which it will be full again (the generic cell rate algorithm), and
+ * updated by compare-and-set, so checking a quota takes no lock. A client is
+ * forgotten once its bucket has been full for a while.
+ */
+public class ClientQuotas {
+
+    private static final long MAX_CLIENTS = 100_000;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public ClientQuotas(double rate, int burst, LongSupplier clock) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid quota " + rate + "/s with burst " + burst);
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burstNanos = intervalNanos * burst;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(MAX_CLIENTS)
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .build();
+    }
+
+    /**
+     * Takes a token from the client's bucket. Returns {@link Duration#ZERO}
+     * when one was taken, otherwise how long until the next one is available.
+     */
+    public Duration tryAcquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong full = buckets.get(client, key -> new AtomicLong(now));
+        while (true) {
+            long current = full.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return Duration.ofNanos(wait);
+            }
+            if (full.compareAndSet(current, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+}
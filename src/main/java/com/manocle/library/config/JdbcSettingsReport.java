@@ -0,0 +1,95 @@
+package com.manocle.library.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Logs the connection pool, driver and Hibernate settings in effect once the
+ * application is ready, so it is clear which tuning profile a deployment runs.
+ */
+@Slf4j
+@Component
+public class JdbcSettingsReport {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final String[] HIBERNATE_SETTINGS = {
+            "hibernate.jdbc.batch_size",
+            "hibernate.order_inserts",
+            "hibernate.order_updates",
+            "hibernate.jdbc.batch_versioned_data",
+            "hibernate.jdbc.fetch_size",
+            "hibernate.query.plan_cache_max_size",
+            "hibernate.query.in_clause_parameter_padding"
+    };
+
+    private Environment environment;
+    private ObjectProvider<DataSource> dataSource;
+    private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public JdbcSettingsReport(Environment environment, ObjectProvider<DataSource> dataSource,
+                              ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.environment = environment;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        boolean sharded = "sharded".equals(environment.getProperty("library.book-service"));
+        if (dataSource.getIfAvailable() == null && !sharded) {
+            return;
+        }
+        String[] profiles = environment.getActiveProfiles();
+        log.info("JDBC settings for profiles {}", profiles.length == 0 ? "[default]" : Arrays.toString(profiles));
+        log.info("Connection pool: {}", pool());
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory != null) {
+            log.info("Hibernate: {}", hibernate(factory.getProperties()));
+        }
+        log.info("Import chunk-size={}, export flush-rows={}",
+                environment.getProperty("library.import.chunk-size", "500"),
+                environment.getProperty("library.export.flush-rows", "1000"));
+    }
+
+    /**
+     * Every pool the application opens, auto-configured or not, is bound from
+     * {@code spring.datasource.hikari}, so binding it again gives their settings.
+     */
+    private Map<String, Object> pool() {
+        HikariConfig config = new HikariConfig();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(config));
+        // unset sizes are resolved by Hikari when the pool starts
+        int maximumPoolSize = config.getMaximumPoolSize() < 1 ? DEFAULT_POOL_SIZE : config.getMaximumPoolSize();
+        int minimumIdle = config.getMinimumIdle() < 0 || config.getMinimumIdle() > maximumPoolSize
+                ? maximumPoolSize : config.getMinimumIdle();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("maximum-pool-size", maximumPoolSize);
+        settings.put("minimum-idle", minimumIdle);
+        settings.put("connection-timeout", config.getConnectionTimeout() + "ms");
+        settings.put("driver", new TreeMap<>(config.getDataSourceProperties()));
+        return settings;
+    }
+
+    private static Map<String, Object> hibernate(Map<String, Object> properties) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        for (String name : HIBERNATE_SETTINGS) {
+            settings.put(name.substring("hibernate.".length()), properties.getOrDefault(name, "default"));
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,80 @@
+package com.manocle.library.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.OptionalLong;
+
+/**
+ * Tells {@link ReplicaRoutingDataSource} when the client of the current request
+ * last wrote. A request whose write commits is answered with
+ * {@code X-Last-Write}, the commit time in epoch milliseconds. A client that
+ * sends it back has its reads kept on the primary for the read-your-writes
+ * window after that time, while other clients keep reading from replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String LAST_WRITE_HEADER = "X-Last-Write";
+
+    private static final ThreadLocal<Client> CURRENT = new ThreadLocal<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CURRENT.set(new Client(response, parse(request.getHeader(LAST_WRITE_HEADER))));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * When the client of the current request last wrote, if it said so or wrote
+     * during this request.
+     */
+    static OptionalLong lastWrite() {
+        Client client = CURRENT.get();
+        return client == null || client.lastWrite < 0 ? OptionalLong.empty() : OptionalLong.of(client.lastWrite);
+    }
+
+    /**
+     * Records a write committed at {@code time} for the client of the current
+     * request, if there is one.
+     */
+    static void written(long time) {
+        Client client = CURRENT.get();
+        if (client == null) {
+            return;
+        }
+        client.lastWrite = Math.max(client.lastWrite, time);
+        if (!client.response.isCommitted()) {
+            client.response.setHeader(LAST_WRITE_HEADER, Long.toString(client.lastWrite));
+        }
+    }
+
+    private static long parse(String header) {
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Client {
+        final HttpServletResponse response;
+        long lastWrite;
+
+        Client(HttpServletResponse response, long lastWrite) {
+            this.response = response;
+            this.lastWrite = lastWrite;
+        }
+    }
+}
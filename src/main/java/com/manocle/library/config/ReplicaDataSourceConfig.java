@@ -0,0 +1,86 @@
+package com.manocle.library.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces the auto-configured datasource with a primary pool plus one pool per
+ * {@code library.datasource.replicas.urls} entry, routed by
+ * {@link ReplicaRoutingDataSource}. All pools take their settings from
+ * {@code spring.datasource.hikari.*}. {@link ReadYourWritesFilter} follows
+ * each client's last write.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.datasource.replicas.urls")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService replicaHealthCheckScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties, Environment environment, ScheduledExecutorService replicaHealthCheckScheduler,
+            @Value("${library.datasource.replicas.urls}") List<String> urls,
+            @Value("${library.datasource.replicas.username:}") String username,
+            @Value("${library.datasource.replicas.password:}") String password,
+            @Value("${library.datasource.replicas.selection:round-robin}") String selection,
+            @Value("${library.datasource.replicas.read-your-writes:1s}") Duration readYourWrites,
+            @Value("${library.datasource.replicas.health-check-interval:5s}") Duration healthCheckInterval) {
+        HikariDataSource primary = DataSourcePools.pool(environment, "primary",
+                properties.determineUrl(), properties.determineUsername(), properties.determinePassword());
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            replicas.add(DataSourcePools.pool(environment, "replica-" + i, urls.get(i).trim(),
+                    username.isEmpty() ? properties.determineUsername() : username,
+                    password.isEmpty() ? properties.determinePassword() : password));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                ReplicaRoutingDataSource.Selection.valueOf(selection.toUpperCase(Locale.ROOT).replace('-', '_')),
+                readYourWrites);
+        long interval = healthCheckInterval.toMillis();
+        replicaHealthCheckScheduler.scheduleWithFixedDelay(() -> routing.checkReplicas(2), interval, interval, TimeUnit.MILLISECONDS);
+        Metrics.gauge("library.datasource.replicas.healthy", routing, ReplicaRoutingDataSource::healthyReplicas);
+        return routing;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,54 @@
+package com.manocle.library.config;
+
+import com.manocle.library.model.repository.ShardedBookRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One pool per {@code library.sharding.urls} entry, in that order, for
+ * {@link ShardedBookRepository}. ISBN routing and book ids depend on the number
+ * and order of the shards, so the list must not change once books are stored.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.book-service", havingValue = "sharded")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService shardScatterExecutor(@Value("${library.sharding.scatter-threads:16}") int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public ShardedBookRepository shardedBookRepository(
+            Environment environment, ExecutorService shardScatterExecutor,
+            @Value("${library.sharding.urls}") List<String> urls,
+            @Value("${library.sharding.username:sa}") String username,
+            @Value("${library.sharding.password:}") String password,
+            @Value("${library.sharding.schema:classpath:schema-shard.sql}") Resource schema) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource pool = DataSourcePools.pool(environment, "shard-" + i, urls.get(i).trim(), username, password);
+            new ResourceDatabasePopulator(schema).execute(pool);
+            shards.add(pool);
+        }
+        return new ShardedBookRepository(shards, shardScatterExecutor);
+    }
+}
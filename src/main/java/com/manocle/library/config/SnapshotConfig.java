@@ -0,0 +1,60 @@
+package com.manocle.library.config;
+
+import com.manocle.library.service.snapshot.BookSnapshotStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog snapshot served in {@code snapshot} mode, refreshed every
+ * {@code library.snapshot.refresh-interval}. The source database is only
+ * connected to while a snapshot is being built.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "library.book-service", havingValue = "snapshot")
+public class SnapshotConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService snapshotRefreshScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // created on startup even with lazy initialization, so refreshes start on time
+    @Bean
+    @Lazy(false)
+    public BookSnapshotStore bookSnapshotStore(
+            ScheduledExecutorService snapshotRefreshScheduler,
+            @Value("${library.snapshot.path:data/books.snapshot}") Path path,
+            @Value("${library.snapshot.source.url:}") String url,
+            @Value("${library.snapshot.source.username:}") String username,
+            @Value("${library.snapshot.source.password:}") String password,
+            @Value("${library.snapshot.refresh-interval:5m}") Duration refreshInterval) throws IOException {
+        BookSnapshotStore store = new BookSnapshotStore(path,
+                url.isEmpty() ? null : new DriverManagerDataSource(url, username, password));
+        long interval = refreshInterval.toMillis();
+        snapshotRefreshScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                store.refresh();
+            } catch (Exception e) {
+                log.warn("Snapshot refresh failed, still serving the previous one: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return store;
+    }
+}
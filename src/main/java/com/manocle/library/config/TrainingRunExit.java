@@ -0,0 +1,25 @@
+package com.manocle.library.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready. The {@code cds} build profile
+ * starts it this way once, so the JVM can archive every class loaded during
+ * startup on exit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "library.startup.exit-on-ready", havingValue = "true")
+public class TrainingRunExit {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exit(ApplicationReadyEvent event) {
+        log.info("Training run complete, exiting");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
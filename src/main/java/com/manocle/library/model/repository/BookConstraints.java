@@ -0,0 +1,37 @@
+package com.manocle.library.model.repository;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Locale;
+
+/**
+ * Tells which constraint of the {@code book} table a write violated.
+ */
+public final class BookConstraints {
+
+    public static final String UNIQUE_ISBN = "uk_book_isbn";
+
+    private BookConstraints() {
+    }
+
+    /**
+     * Whether the failure is a violation of the unique ISBN index, as opposed to
+     * any other integrity error such as a value too long for its column.
+     * Hibernate reports the constraint by name; plain JDBC and R2DBC only name it
+     * in the database's message, so that is checked as well.
+     */
+    public static boolean isDuplicateIsbn(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            String constraint = cause instanceof ConstraintViolationException
+                    ? ((ConstraintViolationException) cause).getConstraintName() : null;
+            if ((constraint != null && names(constraint)) || (cause.getMessage() != null && names(cause.getMessage()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean names(String text) {
+        return text.toLowerCase(Locale.ROOT).contains(UNIQUE_ISBN);
+    }
+}
@@ -0,0 +1,95 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Plain SQL for the query-by-example rules used on the JPA side: every non-null
+ * property must match, strings case-insensitively and as "contains". Shared by
+ * the repositories that do not go through JPA.
+ */
+final class BookFilterSql {
+
+    static final String COLUMNS = "id, title, author, isbn, version";
+
+    private static final Map<String, Function<Book, Comparable>> SORTABLE_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SORTABLE_COLUMNS.put("id", Book::getId);
+        SORTABLE_COLUMNS.put("title", Book::getTitle);
+        SORTABLE_COLUMNS.put("author", Book::getAuthor);
+        SORTABLE_COLUMNS.put("isbn", Book::getIsbn);
+    }
+
+    private BookFilterSql() {
+    }
+
+    static String where(Book filter, Map<String, Object> parameters) {
+        List<String> predicates = new ArrayList<>();
+        if (filter.getId() != null) {
+            predicates.add("id = :id");
+            parameters.put("id", filter.getId());
+        }
+        contains(predicates, parameters, "title", filter.getTitle());
+        contains(predicates, parameters, "author", filter.getAuthor());
+        contains(predicates, parameters, "isbn", filter.getIsbn());
+        return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+    }
+
+    private static void contains(List<String> predicates, Map<String, Object> parameters, String column, String value) {
+        if (value == null) {
+            return;
+        }
+        predicates.add("lower(" + column + ") like :" + column + " escape '\\'");
+        String escaped = value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        parameters.put(column, "%" + escaped + "%");
+    }
+
+    /**
+     * Order by the sortable properties of {@code sort}, unknown ones are ignored,
+     * with id as the final tie-breaker.
+     */
+    static String orderBy(Sort sort) {
+        List<Sort.Order> orders = sortableOrders(sort);
+        List<String> columns = orders.stream()
+                .map(order -> order.getProperty() + (order.isAscending() ? " asc" : " desc"))
+                .collect(Collectors.toList());
+        if (orders.stream().noneMatch(order -> order.getProperty().equals("id"))) {
+            columns.add("id asc");
+        }
+        return " order by " + String.join(", ", columns);
+    }
+
+    /**
+     * The in-memory equivalent of {@link #orderBy(Sort)}, for merging rows that
+     * come from several databases. Strings compare by code point, as H2 and
+     * databases with a binary collation do.
+     */
+    @SuppressWarnings("unchecked")
+    static Comparator<Book> comparator(Sort sort) {
+        Comparator<Book> comparator = null;
+        for (Sort.Order order : sortableOrders(sort)) {
+            Comparator<Book> next = Comparator.comparing(SORTABLE_COLUMNS.get(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Book> byId = Comparator.comparing(Book::getId);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static List<Sort.Order> sortableOrders(Sort sort) {
+        return sort.stream()
+                .filter(order -> SORTABLE_COLUMNS.containsKey(order.getProperty()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,14 @@
+package com.manocle.library.model.repository;
+
+import org.springframework.dao.NonTransientDataAccessException;
+
+/**
+ * A change would require moving a book where the store cannot move it, such as
+ * to another shard.
+ */
+public class BookRelocationException extends NonTransientDataAccessException {
+
+    public BookRelocationException(String message) {
+        super(message);
+    }
+}
@@ -2,8 +2,45 @@ package com.manocle.library.model.repository;
 
 import com.manocle.library.model.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Transactional(readOnly = true)
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Book b where b.id = :id")
+    int removeById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Book b set b.title = coalesce(:title, b.title), b.author = coalesce(:author, b.author), " +
+            "b.version = b.version + 1 where b.id = :id and (:version is null or b.version = :version)")
+    int updateTitleAndAuthor(@Param("id") Long id, @Param("version") Long version,
+                             @Param("title") String title, @Param("author") String author);
+
+    /**
+     * Streams the whole table in id order. The constructor expression returns
+     * detached instances, so the persistence context does not grow with the
+     * number of rows read. Rows are fetched {@code hibernate.jdbc.fetch_size}
+     * at a time. Must be consumed inside a transaction and closed.
+     */
+    @Query("select new com.manocle.library.model.entity.Book(b.id, b.title, b.author, b.isbn, b.version) " +
+            "from Book b order by b.id")
+    Stream<Book> streamAll();
+
 }
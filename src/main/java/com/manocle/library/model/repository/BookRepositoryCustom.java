@@ -0,0 +1,25 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.OptionalLong;
+
+public interface BookRepositoryCustom {
+
+    Slice<Book> findAfter(Example<Book> example, Long afterId, int size);
+
+    /**
+     * The requested page without counting all matches.
+     */
+    Slice<Book> findSlice(Example<Book> example, Pageable pageRequest);
+
+    /**
+     * The number of books according to the database statistics, if it keeps any
+     * this can read.
+     */
+    OptionalLong estimateCount();
+
+}
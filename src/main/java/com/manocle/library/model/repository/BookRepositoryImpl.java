@@ -0,0 +1,107 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.hibernate.Session;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> findAfter(Example<Book> example, Long afterId, int size) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        // bound as a parameter: an inlined literal would make every cursor a new query to parse and plan
+        ParameterExpression<Long> after = builder.parameter(Long.class);
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+        if (byExample != null) {
+            predicates.add(byExample);
+        }
+        if (afterId != null) {
+            predicates.add(builder.greaterThan(root.get("id"), after));
+        }
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(builder.asc(root.get("id")));
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query)
+                .setMaxResults(size + 1);
+        if (afterId != null) {
+            typedQuery.setParameter(after, afterId);
+        }
+        List<Book> books = typedQuery.getResultList();
+
+        boolean hasNext = books.size() > size;
+        List<Book> content = hasNext ? books.subList(0, size) : books;
+        return new SliceImpl<>(content, PageRequest.of(0, size, Sort.by("id")), hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> findSlice(Example<Book> example, Pageable pageRequest) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate byExample = QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+        if (byExample != null) {
+            query.where(byExample);
+        }
+        query.orderBy(QueryUtils.toOrders(pageRequest.getSort(), root, builder));
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query);
+        if (pageRequest.isUnpaged()) {
+            return new SliceImpl<>(typedQuery.getResultList(), pageRequest, false);
+        }
+        List<Book> books = typedQuery
+                .setFirstResult((int) pageRequest.getOffset())
+                .setMaxResults(pageRequest.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = books.size() > pageRequest.getPageSize();
+        List<Book> content = hasNext ? books.subList(0, pageRequest.getPageSize()) : books;
+        return new SliceImpl<>(content, pageRequest, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OptionalLong estimateCount() {
+        String database = entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> connection.getMetaData().getDatabaseProductName());
+        String sql;
+        if (database.equals("H2")) {
+            sql = "select row_count_estimate from information_schema.tables " +
+                    "where table_schema = schema() and table_name = 'BOOK'";
+        } else if (database.equals("PostgreSQL")) {
+            // reltuples is -1 until the table is first vacuumed or analyzed
+            sql = "select cast(reltuples as bigint) from pg_class where oid = to_regclass('book')";
+        } else {
+            return OptionalLong.empty();
+        }
+        List<?> rows = entityManager.createNativeQuery(sql).getResultList();
+        if (rows.isEmpty() || rows.get(0) == null || ((Number) rows.get(0)).longValue() < 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(((Number) rows.get(0)).longValue());
+    }
+}
@@ -0,0 +1,87 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Where the book service keeps its books: {@link JpaBookStore} over the JPA
+ * repository, or {@link ShardedBookRepository} across several databases.
+ * Caching, search indexing and request coalescing are the service's job, so a
+ * store only reads and writes rows.
+ * <p>
+ * String filter properties match case-insensitively as "contains", and a
+ * duplicate ISBN fails with a {@link org.springframework.dao.DataIntegrityViolationException}
+ * naming {@link BookConstraints#UNIQUE_ISBN}.
+ */
+public interface BookStore {
+
+    Book insert(Book book);
+
+    /**
+     * Stores the books and returns the given instances that were stored, with
+     * their ids set. Books whose ISBN is already taken are left out.
+     */
+    List<Book> insertAll(List<Book> books);
+
+    Set<String> findExistingIsbns(Collection<String> isbns);
+
+    Optional<Book> findById(Long id);
+
+    boolean existsById(Long id);
+
+    List<Book> findAllById(Collection<Long> ids);
+
+    List<Book> findAllByIsbn(Collection<String> isbns);
+
+    int deleteById(Long id);
+
+    /**
+     * Sets the non-null title and author, if the book exists and has the given
+     * version or the version is null. Returns the number of rows changed.
+     */
+    int updateTitleAndAuthor(Long id, Long version, String title, String author);
+
+    /**
+     * Overwrites every column of the book. Returns empty when no book with its
+     * id and version exists. Fails with a {@link BookRelocationException} when
+     * the new values belong somewhere the store cannot move the book to.
+     */
+    Optional<Book> replace(Book book);
+
+    Page<Book> findAll(Book filter, Pageable pageRequest);
+
+    /**
+     * The requested page without counting all matches.
+     */
+    default Slice<Book> findSlice(Book filter, Pageable pageRequest) {
+        Page<Book> page = findAll(filter, pageRequest);
+        return new SliceImpl<>(page.getContent(), pageRequest, page.hasNext());
+    }
+
+    long count(Book filter);
+
+    /**
+     * The number of books according to the database statistics, if the store
+     * can read any.
+     */
+    default OptionalLong estimateCount() {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Keyset paging: the first {@code size} matches with an id above
+     * {@code afterId}, in id order.
+     */
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
+    /**
+     * Passes every book to the consumer, streaming rather than loading them all.
+     */
+    void forEach(Consumer<Book> consumer);
+}
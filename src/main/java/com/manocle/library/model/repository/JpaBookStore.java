@@ -0,0 +1,163 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link BookStore} over {@link BookRepository}, for
+ * {@code library.book-service=jpa}.
+ */
+@Component
+@ConditionalOnProperty(name = "library.book-service", havingValue = "jpa", matchIfMissing = true)
+public class JpaBookStore implements BookStore {
+
+    private BookRepository repository;
+    private TransactionTemplate writes;
+    private TransactionTemplate reads;
+
+    public JpaBookStore(BookRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.writes = new TransactionTemplate(transactionManager);
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+    }
+
+    @Override
+    public Book insert(Book book) {
+        return repository.saveAndFlush(book);
+    }
+
+    /**
+     * One transaction for the whole batch. When it hits a taken ISBN it is
+     * rolled back, and the books are saved one at a time instead.
+     */
+    @Override
+    public List<Book> insertAll(List<Book> books) {
+        try {
+            return writes.execute(status -> {
+                List<Book> saved = repository.saveAll(books);
+                repository.flush();
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!BookConstraints.isDuplicateIsbn(e)) {
+                throw e;
+            }
+        }
+        List<Book> saved = new ArrayList<>();
+        for (Book book : books) {
+            // the rolled back batch already gave the book an id
+            book.setId(null);
+            book.setVersion(null);
+            try {
+                saved.add(repository.saveAndFlush(book));
+            } catch (DataIntegrityViolationException e) {
+                if (!BookConstraints.isDuplicateIsbn(e)) {
+                    throw e;
+                }
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public Set<String> findExistingIsbns(Collection<String> isbns) {
+        return repository.findExistingIsbns(isbns);
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return repository.existsById(id);
+    }
+
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        return repository.findAllById(ids);
+    }
+
+    @Override
+    public List<Book> findAllByIsbn(Collection<String> isbns) {
+        return repository.findByIsbnIn(isbns);
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return repository.removeById(id);
+    }
+
+    @Override
+    public int updateTitleAndAuthor(Long id, Long version, String title, String author) {
+        return repository.updateTitleAndAuthor(id, version, title, author);
+    }
+
+    /**
+     * A stale version fails with an
+     * {@link org.springframework.orm.ObjectOptimisticLockingFailureException}.
+     */
+    @Override
+    public Optional<Book> replace(Book book) {
+        return Optional.of(repository.save(book));
+    }
+
+    @Override
+    public Page<Book> findAll(Book filter, Pageable pageRequest) {
+        return repository.findAll(exampleOf(filter), pageRequest);
+    }
+
+    @Override
+    public Slice<Book> findSlice(Book filter, Pageable pageRequest) {
+        return repository.findSlice(exampleOf(filter), pageRequest);
+    }
+
+    @Override
+    public long count(Book filter) {
+        return repository.count(exampleOf(filter));
+    }
+
+    @Override
+    public OptionalLong estimateCount() {
+        return repository.estimateCount();
+    }
+
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return repository.findAfter(exampleOf(filter), afterId, size);
+    }
+
+    @Override
+    public void forEach(Consumer<Book> consumer) {
+        reads.executeWithoutResult(status -> {
+            try (Stream<Book> books = repository.streamAll()) {
+                books.forEach(consumer);
+            }
+        });
+    }
+
+    public static Example<Book> exampleOf(Book filter) {
+        return Example.of(filter,
+                ExampleMatcher
+                        .matching()
+                        .withIgnoreCase()
+                        .withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+        );
+    }
+}
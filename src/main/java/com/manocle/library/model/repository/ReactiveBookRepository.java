@@ -0,0 +1,108 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R2DBC counterpart of {@link BookRepository} for the reactive profile, filtering
+ * with {@link BookFilterSql}.
+ */
+@Repository
+@ConditionalOnProperty(name = "library.book-service", havingValue = "reactive")
+public class ReactiveBookRepository {
+
+    private final DatabaseClient client;
+
+    public ReactiveBookRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Book> findById(Long id) {
+        return client.sql("select " + BookFilterSql.COLUMNS + " from book where id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toBook(row))
+                .one();
+    }
+
+    public Mono<Book> insert(Book book) {
+        return client.sql("select next value for book_seq")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> client.sql("insert into book (id, title, author, isbn, version) values (:id, :title, :author, :isbn, 0)")
+                        .bind("id", id)
+                        .bind("title", book.getTitle())
+                        .bind("author", book.getAuthor())
+                        .bind("isbn", book.getIsbn())
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(new Book(id, book.getTitle(), book.getAuthor(), book.getIsbn(), 0L)));
+    }
+
+    public Mono<Integer> updateTitleAndAuthor(Long id, Long version, String title, String author) {
+        String sql = "update book set title = coalesce(:title, title), author = coalesce(:author, author), version = version + 1 where id = :id"
+                + (version == null ? "" : " and version = :version");
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("id", id);
+        spec = title == null ? spec.bindNull("title", String.class) : spec.bind("title", title);
+        spec = author == null ? spec.bindNull("author", String.class) : spec.bind("author", author);
+        if (version != null) {
+            spec = spec.bind("version", version);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return client.sql("delete from book where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Flux<Book> findAll(Book filter, Pageable pageRequest) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("select " + BookFilterSql.COLUMNS + " from book")
+                .append(BookFilterSql.where(filter, parameters))
+                .append(BookFilterSql.orderBy(pageRequest.getSort()));
+        if (pageRequest.isPaged()) {
+            sql.append(" limit :limit offset :offset");
+            parameters.put("limit", pageRequest.getPageSize());
+            parameters.put("offset", pageRequest.getOffset());
+        }
+        return bindAll(client.sql(sql.toString()), parameters)
+                .map((row, metadata) -> toBook(row))
+                .all();
+    }
+
+    public Mono<Long> count(Book filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String sql = "select count(*) from book" + BookFilterSql.where(filter, parameters);
+        return bindAll(client.sql(sql), parameters)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAll(DatabaseClient.GenericExecuteSpec spec, Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    private static Book toBook(Row row) {
+        return new Book(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                row.get("author", String.class),
+                row.get("isbn", String.class),
+                row.get("version", Long.class));
+    }
+}
@@ -0,0 +1,460 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.*;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Stores books across several databases, each with its own {@code book} table.
+ * A book lives in the shard picked by the hash of its ISBN, so the unique ISBN
+ * constraint of that table is enough to keep ISBNs unique overall. Ids handed
+ * out are {@code localId << 8 | shard}, which lets lookups by id go straight to
+ * the owning shard; filtered queries run on every shard in parallel and the
+ * results are merged here.
+ * <p>
+ * Writes touching several shards are not atomic across them.
+ */
+public class ShardedBookRepository implements BookStore {
+
+    static final int SHARD_BITS = 8;
+    static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final List<DataSource> dataSources;
+    private final List<Shard> shards;
+    private final Executor executor;
+
+    public ShardedBookRepository(List<DataSource> dataSources, Executor executor) {
+        if (dataSources.isEmpty() || dataSources.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_SHARDS + " shards are supported");
+        }
+        this.dataSources = new ArrayList<>(dataSources);
+        List<Shard> list = new ArrayList<>();
+        for (int i = 0; i < dataSources.size(); i++) {
+            list.add(new Shard(i, dataSources.get(i)));
+        }
+        this.shards = Collections.unmodifiableList(list);
+        this.executor = executor;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(String isbn) {
+        CRC32 crc = new CRC32();
+        crc.update(isbn.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shards.size());
+    }
+
+    static long globalId(long localId, int shard) {
+        return localId << SHARD_BITS | shard;
+    }
+
+    static int shardOfId(long id) {
+        return (int) (id & (MAX_SHARDS - 1));
+    }
+
+    static long localId(long id) {
+        return id >>> SHARD_BITS;
+    }
+
+    /**
+     * Inserts the book into the shard owning its ISBN and returns it with its
+     * global id and version 0. A duplicate ISBN fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    @Override
+    public Book insert(Book book) {
+        Shard shard = shards.get(shardOf(book.getIsbn()));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        shard.jdbc.update("insert into book (title, author, isbn, version) values (:title, :author, :isbn, 0)",
+                new MapSqlParameterSource()
+                        .addValue("title", book.getTitle())
+                        .addValue("author", book.getAuthor())
+                        .addValue("isbn", book.getIsbn()),
+                keyHolder, new String[]{"id"});
+        return saved(book, keyHolder.getKey().longValue(), shard.index);
+    }
+
+    /**
+     * Inserts the books as one batch and one transaction per shard. Like JPA's
+     * {@code saveAll}, it returns the given instances with their ids set, but
+     * only those that were stored: when a shard's batch hits an ISBN that is
+     * already taken, that shard's books are inserted one at a time instead and
+     * the duplicates are left out. The other shards' batches are unaffected, so
+     * the result is exactly what was committed.
+     */
+    @Override
+    public List<Book> insertAll(List<Book> books) {
+        List<Book> saved = new ArrayList<>();
+        byShard(books, book -> shardOf(book.getIsbn())).forEach((index, shardBooks) -> {
+            try {
+                saved.addAll(insertBatch(shards.get(index), shardBooks));
+            } catch (DataIntegrityViolationException e) {
+                if (!BookConstraints.isDuplicateIsbn(e)) {
+                    throw e;
+                }
+                for (Book book : shardBooks) {
+                    try {
+                        saved.add(insert(book));
+                    } catch (DataIntegrityViolationException duplicated) {
+                        if (!BookConstraints.isDuplicateIsbn(duplicated)) {
+                            throw duplicated;
+                        }
+                    }
+                }
+            }
+        });
+        return saved;
+    }
+
+    private List<Book> insertBatch(Shard shard, List<Book> books) {
+        return shard.transaction.execute(status -> shard.jdbc.getJdbcTemplate().execute(
+                (ConnectionCallback<List<Book>>) connection -> {
+                    List<Book> inserted = new ArrayList<>();
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "insert into book (title, author, isbn, version) values (?, ?, ?, 0)", new String[]{"id"})) {
+                        for (Book book : books) {
+                            statement.setString(1, book.getTitle());
+                            statement.setString(2, book.getAuthor());
+                            statement.setString(3, book.getIsbn());
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            for (Book book : books) {
+                                keys.next();
+                                inserted.add(saved(book, keys.getLong(1), shard.index));
+                            }
+                        }
+                    }
+                    return inserted;
+                }));
+    }
+
+    @Override
+    public Set<String> findExistingIsbns(Collection<String> isbns) {
+        Set<String> existing = new HashSet<>();
+        byShard(isbns, this::shardOf).forEach((index, shardIsbns) -> existing.addAll(shards.get(index).jdbc.queryForList(
+                "select isbn from book where isbn in (:isbns)",
+                Collections.singletonMap("isbns", shardIsbns), String.class)));
+        return existing;
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        Shard shard = owner(id);
+        if (shard == null) {
+            return Optional.empty();
+        }
+        return shard.jdbc.query("select " + BookFilterSql.COLUMNS + " from book where id = :id",
+                        Collections.singletonMap("id", localId(id)), shard.rowMapper)
+                .stream().findFirst();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        Shard shard = owner(id);
+        return shard != null && shard.jdbc.queryForObject("select count(*) from book where id = :id",
+                Collections.singletonMap("id", localId(id)), Long.class) > 0;
+    }
+
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        List<Book> books = new ArrayList<>();
+        byShard(ids.stream().filter(id -> owner(id) != null).collect(Collectors.toList()), ShardedBookRepository::shardOfId)
+                .forEach((index, shardIds) -> {
+                    Shard shard = shards.get(index);
+                    books.addAll(shard.jdbc.query("select " + BookFilterSql.COLUMNS + " from book where id in (:ids)",
+                            Collections.singletonMap("ids", shardIds.stream().map(ShardedBookRepository::localId)
+                                    .collect(Collectors.toList())),
+                            shard.rowMapper));
+                });
+        return books;
+    }
+
+    @Override
+    public List<Book> findAllByIsbn(Collection<String> isbns) {
+        List<Book> books = new ArrayList<>();
+        byShard(isbns, this::shardOf).forEach((index, shardIsbns) -> {
+            Shard shard = shards.get(index);
+            books.addAll(shard.jdbc.query("select " + BookFilterSql.COLUMNS + " from book where isbn in (:isbns)",
+                    Collections.singletonMap("isbns", shardIsbns), shard.rowMapper));
+        });
+        return books;
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        Shard shard = owner(id);
+        if (shard == null) {
+            return 0;
+        }
+        return shard.jdbc.update("delete from book where id = :id", Collections.singletonMap("id", localId(id)));
+    }
+
+    @Override
+    public int updateTitleAndAuthor(Long id, Long version, String title, String author) {
+        Shard shard = owner(id);
+        if (shard == null) {
+            return 0;
+        }
+        return shard.jdbc.update("update book set title = coalesce(:title, title), author = coalesce(:author, author), " +
+                        "version = version + 1 where id = :id and (cast(:version as bigint) is null or version = :version)",
+                new MapSqlParameterSource()
+                        .addValue("id", localId(id))
+                        .addValue("version", version)
+                        .addValue("title", title)
+                        .addValue("author", author));
+    }
+
+    /**
+     * Overwrites every column of the book. The ISBN may only change to one owned
+     * by the same shard, moving books between shards is not supported.
+     */
+    @Override
+    public Optional<Book> replace(Book book) {
+        Shard shard = owner(book.getId());
+        if (shard == null) {
+            return Optional.empty();
+        }
+        if (shardOf(book.getIsbn()) != shard.index) {
+            throw new BookRelocationException("Isbn " + book.getIsbn() + " belongs to another shard");
+        }
+        int updated = shard.jdbc.update("update book set title = :title, author = :author, isbn = :isbn, " +
+                        "version = version + 1 where id = :id and (cast(:version as bigint) is null or version = :version)",
+                new MapSqlParameterSource()
+                        .addValue("id", localId(book.getId()))
+                        .addValue("version", book.getVersion())
+                        .addValue("title", book.getTitle())
+                        .addValue("author", book.getAuthor())
+                        .addValue("isbn", book.getIsbn()));
+        return updated == 0 ? Optional.empty() : findById(book.getId());
+    }
+
+    /**
+     * Every shard returns its first {@code offset + size} matches in the requested
+     * order, and the page is cut from their merge. The cost therefore grows with
+     * the page number; {@link #findAfter} does not have that problem.
+     */
+    @Override
+    public Page<Book> findAll(Book filter, Pageable pageRequest) {
+        List<Shard> targets = targets(filter);
+        long limit = pageRequest.isPaged() ? pageRequest.getOffset() + pageRequest.getPageSize() : -1;
+        List<CompletableFuture<List<Book>>> rows = scatter(targets, shard -> firstMatches(shard, filter, pageRequest.getSort(), limit));
+        List<CompletableFuture<Long>> counts = scatter(targets, shard -> count(shard, filter));
+
+        List<Book> merged = merge(rows, pageRequest.getSort());
+        long total = gather(counts).stream().mapToLong(Long::longValue).sum();
+        if (pageRequest.isUnpaged()) {
+            return new PageImpl<>(merged, pageRequest, total);
+        }
+        return new PageImpl<>(cut(merged, pageRequest), pageRequest, total);
+    }
+
+    /**
+     * Like {@link #findAll}, but each shard returns one more match instead of
+     * counting them all.
+     */
+    @Override
+    public Slice<Book> findSlice(Book filter, Pageable pageRequest) {
+        if (pageRequest.isUnpaged()) {
+            return findAll(filter, pageRequest);
+        }
+        long limit = pageRequest.getOffset() + pageRequest.getPageSize() + 1;
+        List<Book> merged = merge(scatter(targets(filter), shard -> firstMatches(shard, filter, pageRequest.getSort(), limit)),
+                pageRequest.getSort());
+        return new SliceImpl<>(cut(merged, pageRequest), pageRequest, merged.size() >= limit);
+    }
+
+    @Override
+    public long count(Book filter) {
+        return gather(scatter(targets(filter), shard -> count(shard, filter))).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private List<Book> firstMatches(Shard shard, Book filter, Sort sort, long limit) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("select " + BookFilterSql.COLUMNS + " from book")
+                .append(BookFilterSql.where(shard.localFilter(filter), parameters))
+                .append(BookFilterSql.orderBy(sort));
+        if (limit >= 0) {
+            sql.append(" limit :limit");
+            parameters.put("limit", limit);
+        }
+        return shard.jdbc.query(sql.toString(), parameters, shard.rowMapper);
+    }
+
+    private static long count(Shard shard, Book filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String sql = "select count(*) from book" + BookFilterSql.where(shard.localFilter(filter), parameters);
+        return shard.jdbc.queryForObject(sql, parameters, Long.class);
+    }
+
+    private static List<Book> merge(List<CompletableFuture<List<Book>>> rows, Sort sort) {
+        return gather(rows).stream()
+                .flatMap(List::stream)
+                .sorted(BookFilterSql.comparator(sort))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Book> cut(List<Book> merged, Pageable pageRequest) {
+        int from = (int) Math.min(pageRequest.getOffset(), merged.size());
+        int to = Math.min(from + pageRequest.getPageSize(), merged.size());
+        return new ArrayList<>(merged.subList(from, to));
+    }
+
+    /**
+     * Keyset paging by global id. A shard's rows are in global id order when
+     * sorted by local id, so each shard only has to return its next
+     * {@code size + 1} rows past the cursor.
+     */
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        List<CompletableFuture<List<Book>>> rows = scatter(targets(filter), shard -> {
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            StringBuilder sql = new StringBuilder("select " + BookFilterSql.COLUMNS + " from book")
+                    .append(BookFilterSql.where(shard.localFilter(filter), parameters));
+            if (afterId != null) {
+                // the global id grows with the local id first and the shard second
+                sql.append(parameters.isEmpty() ? " where " : " and ")
+                        .append(shard.index > shardOfId(afterId) ? "id >= :after" : "id > :after");
+                parameters.put("after", localId(afterId));
+            }
+            sql.append(" order by id limit :limit");
+            parameters.put("limit", size + 1);
+            return shard.jdbc.query(sql.toString(), parameters, shard.rowMapper);
+        });
+
+        List<Book> books = gather(rows).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Book::getId))
+                .limit(size + 1L)
+                .collect(Collectors.toList());
+        boolean hasNext = books.size() > size;
+        List<Book> content = hasNext ? books.subList(0, size) : books;
+        return new SliceImpl<>(content, PageRequest.of(0, size, Sort.by("id")), hasNext);
+    }
+
+    /**
+     * Streams every book to the consumer, one shard after the other and in id
+     * order within each shard.
+     */
+    @Override
+    public void forEach(Consumer<Book> consumer) {
+        for (Shard shard : shards) {
+            shard.transaction.executeWithoutResult(status -> shard.jdbc.getJdbcTemplate().query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "select " + BookFilterSql.COLUMNS + " from book order by id");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                consumer.accept(shard.rowMapper.mapRow(resultSet, 0));
+            }));
+        }
+    }
+
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    private Shard owner(Long id) {
+        if (id == null || id < 0) {
+            return null;
+        }
+        int index = shardOfId(id);
+        return index < shards.size() ? shards.get(index) : null;
+    }
+
+    private List<Shard> targets(Book filter) {
+        if (filter.getId() == null) {
+            return shards;
+        }
+        Shard shard = owner(filter.getId());
+        return shard == null ? Collections.emptyList() : Collections.singletonList(shard);
+    }
+
+    private <T> List<CompletableFuture<T>> scatter(List<Shard> targets, Function<Shard, T> query) {
+        return targets.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .collect(Collectors.toList());
+    }
+
+    private static <T> List<T> gather(List<CompletableFuture<T>> futures) {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        List<T> results = new ArrayList<>();
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private static <T> Map<Integer, List<T>> byShard(Collection<T> values, Function<T, Integer> shardOf) {
+        return values.stream().collect(Collectors.groupingBy(shardOf, TreeMap::new, Collectors.toList()));
+    }
+
+    private static Book saved(Book book, long localId, int shard) {
+        book.setId(globalId(localId, shard));
+        book.setVersion(0L);
+        return book;
+    }
+
+    private static final class Shard {
+        final int index;
+        final NamedParameterJdbcTemplate jdbc;
+        final TransactionTemplate transaction;
+        final RowMapper<Book> rowMapper;
+
+        Shard(int index, DataSource dataSource) {
+            this.index = index;
+            this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+            this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.rowMapper = (resultSet, rowNum) -> new Book(
+                    globalId(resultSet.getLong("id"), index),
+                    resultSet.getString("title"),
+                    resultSet.getString("author"),
+                    resultSet.getString("isbn"),
+                    resultSet.getLong("version"));
+        }
+
+        Book localFilter(Book filter) {
+            if (filter.getId() == null) {
+                return filter;
+            }
+            return new Book(localId(filter.getId()), filter.getTitle(), filter.getAuthor(), filter.getIsbn(), null);
+        }
+    }
+}
@@ -3,18 +3,55 @@ package com.manocle.library.service;
 import com.manocle.library.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
 
     Book save(Book any);
 
+    /**
+     * Saves the books whose ISBN is not taken yet and returns those, with their
+     * ids set. The others are left out rather than failing the batch.
+     */
+    List<Book> saveAll(List<Book> books);
+
     Optional<Book> getById(Long id);
 
+    /**
+     * The books with the given ids, keyed by id. Ids with no book are left out.
+     */
+    Map<Long, Book> getByIds(Collection<Long> ids);
+
+    /**
+     * The books with the given ISBNs, keyed by ISBN. ISBNs with no book are left out.
+     */
+    Map<String, Book> getByIsbns(Collection<String> isbns);
+
     void delete(Book book);
 
+    boolean deleteById(Long id);
+
     Book update(Book book);
 
+    Optional<Book> update(Long id, Book changes);
+
     Page<Book> find(Book filter, Pageable pageRequest);
+
+    default CountedPage<Book> find(Book filter, Pageable pageRequest, CountStrategy countStrategy) {
+        return new CountedPage<>(find(filter, pageRequest), CountStrategy.EXACT);
+    }
+
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
+    List<Book> search(String query, int limit);
+
+    long catalogVersion();
+
+    void export(Consumer<Book> consumer);
 }
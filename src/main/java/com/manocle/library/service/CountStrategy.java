@@ -0,0 +1,19 @@
+package com.manocle.library.service;
+
+/**
+ * How {@code find} fills the total number of matching books.
+ */
+public enum CountStrategy {
+
+    /** A count query on every call. */
+    EXACT,
+
+    /** A count query whose result is reused for the same filter for a short time. */
+    CACHED,
+
+    /** The table size from database statistics; unfiltered listings only. */
+    ESTIMATED,
+
+    /** No count: the total only tells whether a next page exists. */
+    NONE
+}
@@ -0,0 +1,29 @@
+package com.manocle.library.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A page together with the {@link CountStrategy} that produced its total, which
+ * may differ from the requested one.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountStrategy countStrategy;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+    }
+
+    public CountedPage(Page<T> page, CountStrategy countStrategy) {
+        this(page.getContent(), page.getPageable(), page.getTotalElements(), countStrategy);
+    }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+}
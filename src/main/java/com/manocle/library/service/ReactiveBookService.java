@@ -0,0 +1,27 @@
+package com.manocle.library.service;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookService {
+
+    Mono<Book> save(Book book);
+
+    Mono<Book> getById(Long id);
+
+    Mono<Boolean> deleteById(Long id);
+
+    Mono<Book> update(Long id, Book changes);
+
+    Mono<Page<Book>> find(Book filter, Pageable pageRequest);
+
+    /**
+     * Changes whenever a book is created, updated or deleted through this
+     * instance, so a listing can be revalidated with a catalog-wide ETag.
+     * Writes through other instances do not change it; the ETag's time window
+     * bounds how long they go unseen.
+     */
+    long catalogVersion();
+}
@@ -0,0 +1,124 @@
+package com.manocle.library.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.manocle.library.model.entity.Book;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the ids and total of {@code find} result pages, keyed by the normalized
+ * filter, the page request and the catalog generation. Any write bumps the
+ * generation, so stale entries simply stop being addressed and age out. A write
+ * made inside a transaction bumps it once the transaction commits; bumping it
+ * earlier would let a concurrent read cache the rows from before the commit
+ * under the new generation.
+ * <p>
+ * Separately, match counts per filter are kept for a short time regardless of
+ * writes, for callers that accept a slightly stale total.
+ */
+@Component
+public class BookQueryCache {
+
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+    private final Cache<Key, Entry> cache;
+    private final Cache<Key, Long> counts;
+
+    public BookQueryCache(@Value("${library.query-cache.maximum-size:5000}") long maximumSize,
+                          @Value("${library.query-cache.expire-after-write-seconds:30}") long expireAfterWriteSeconds,
+                          @Value("${library.query-cache.count-expire-after-write-seconds:10}") long countExpireAfterWriteSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(countExpireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "book-queries");
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, counts, "book-counts");
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    public Optional<Entry> get(Book filter, Pageable pageRequest) {
+        return Optional.ofNullable(cache.getIfPresent(Key.of(generation.get(), filter, pageRequest)));
+    }
+
+    public void put(long generation, Book filter, Pageable pageRequest, Page<Book> page) {
+        long[] ids = page.getContent().stream().mapToLong(Book::getId).toArray();
+        cache.put(Key.of(generation, filter, pageRequest), new Entry(ids, page.getTotalElements()));
+    }
+
+    public OptionalLong getCount(Book filter) {
+        Long count = counts.getIfPresent(Key.of(0, filter, Pageable.unpaged()));
+        return count == null ? OptionalLong.empty() : OptionalLong.of(count);
+    }
+
+    public void putCount(Book filter, long count) {
+        counts.put(Key.of(0, filter, Pageable.unpaged()), count);
+    }
+
+    @lombok.Value
+    public static class Entry {
+        long[] ids;
+        long total;
+    }
+
+    @lombok.Value
+    public static class Key {
+        long generation;
+        Long id;
+        String title;
+        String author;
+        String isbn;
+        int page;
+        int size;
+        Sort sort;
+
+        public static Key of(long generation, Book filter, Pageable pageRequest) {
+            return new Key(generation,
+                    filter.getId(),
+                    normalize(filter.getTitle()),
+                    normalize(filter.getAuthor()),
+                    normalize(filter.getIsbn()),
+                    pageRequest.isPaged() ? pageRequest.getPageNumber() : -1,
+                    pageRequest.isPaged() ? pageRequest.getPageSize() : -1,
+                    pageRequest.getSort());
+        }
+
+        private static String normalize(String value) {
+            return value == null ? null : value.toLowerCase(Locale.ROOT);
+        }
+    }
+}
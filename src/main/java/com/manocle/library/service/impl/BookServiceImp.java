@@ -2,67 +2,334 @@ package com.manocle.library.service.impl;
 
 import com.manocle.library.exception.BusinessException;
 import com.manocle.library.model.entity.Book;
-import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.BookConstraints;
+import com.manocle.library.model.repository.BookRelocationException;
+import com.manocle.library.model.repository.BookStore;
+import com.manocle.library.model.repository.JpaBookStore;
+import com.manocle.library.model.repository.ShardedBookRepository;
 import com.manocle.library.service.BookService;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import com.manocle.library.service.CountStrategy;
+import com.manocle.library.service.CountedPage;
+import com.manocle.library.service.cache.BookQueryCache;
+import com.manocle.library.service.cache.SingleFlight;
+import com.manocle.library.service.search.BookSearchIndex;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.*;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * {@link BookService} over a {@link BookStore}: {@link JpaBookStore} for
+ * {@code library.book-service=jpa}, {@link ShardedBookRepository} for
+ * {@code sharded}.
+ */
 @Service
+@ConditionalOnExpression("'${library.book-service:jpa}' matches 'jpa|sharded'")
+@CacheConfig(cacheNames = "books")
+@Timed("library.books.service")
 public class BookServiceImp implements BookService {
 
-    private BookRepository repository;
+    private static final int INDEX_REBUILD_CHUNK = 1000;
+    private static final int LOOKUP_CHUNK = 256;
 
-    public BookServiceImp(BookRepository repository) {
-        this.repository = repository;
+    private BookStore store;
+    private BookSearchIndex searchIndex;
+    private BookQueryCache queryCache;
+    private Cache books;
+    private SingleFlight<List<Object>, Optional<Book>> byIdLoads;
+    private SingleFlight<List<Object>, CountedPage<Book>> pageLoads;
+    private Counter isbnConflicts;
+
+    public BookServiceImp(BookStore store, BookSearchIndex searchIndex, BookQueryCache queryCache,
+                  CacheManager cacheManager) {
+        this.store = store;
+        this.searchIndex = searchIndex;
+        this.queryCache = queryCache;
+        this.books = cacheManager.getCache("books");
+        this.byIdLoads = new SingleFlight<>(Metrics.counter("library.books.coalesced", "operation", "getById"));
+        this.pageLoads = new SingleFlight<>(Metrics.counter("library.books.coalesced", "operation", "find"));
+        this.isbnConflicts = Metrics.counter("library.books.isbn.conflicts");
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        Long after = null;
+        Slice<Book> slice;
+        do {
+            slice = store.findAfter(new Book(), after, INDEX_REBUILD_CHUNK);
+            slice.forEach(searchIndex::index);
+            if (slice.hasContent()) {
+                after = slice.getContent().get(slice.getNumberOfElements() - 1).getId();
+            }
+        } while (slice.hasNext());
+    }
 
     @Override
+    @CachePut(key = "#result.id")
     public Book save(Book book) {
 
-        if(repository.existsByIsbn(book.getIsbn())){
+        Book savedBook;
+        try {
+            savedBook = store.insert(book);
+        } catch (DataIntegrityViolationException e) {
+            if (!BookConstraints.isDuplicateIsbn(e)) {
+                throw e;
+            }
+            isbnConflicts.increment();
             throw new BusinessException("Isbn já cadastrado");
         }
+        searchIndex.index(savedBook);
+        queryCache.invalidate();
+        return savedBook;
+    }
+
+    /**
+     * Books whose ISBN is already taken, or repeats one earlier in the list, are
+     * left out of the result. The store skips those a concurrent insert took in
+     * the meantime, so the result is exactly what was stored.
+     */
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        Set<String> isbns = books.stream().map(Book::getIsbn).collect(Collectors.toSet());
+        Set<String> registered = new HashSet<>(store.findExistingIsbns(isbns));
+
+        List<Book> newBooks = books.stream()
+                .filter(book -> registered.add(book.getIsbn()))
+                .collect(Collectors.toList());
 
-        return repository.save(book);
+        List<Book> savedBooks = newBooks.isEmpty() ? Collections.emptyList() : store.insertAll(newBooks);
+        isbnConflicts.increment(books.size() - savedBooks.size());
+        savedBooks.forEach(searchIndex::index);
+        if (!savedBooks.isEmpty()) {
+            queryCache.invalidate();
+        }
+        return savedBooks;
     }
 
     @Override
+    @Cacheable(unless = "#result == null")
     public Optional<Book> getById(Long id) {
-        return repository.findById(id);
+        // the generation keeps a read that starts after a write from joining one that started before it
+        return byIdLoads.execute(Arrays.asList(queryCache.generation(), id), () -> store.findById(id));
     }
 
     @Override
+    public Map<Long, Book> getByIds(Collection<Long> ids) {
+        Map<Long, Book> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        for (Long id : distinct) {
+            Book cached = books.get(id, Book.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        load(misses, store::findAllById, Book::getId, found);
+        return found;
+    }
+
+    @Override
+    public Map<String, Book> getByIsbns(Collection<String> isbns) {
+        Map<String, Book> found = new HashMap<>();
+        Set<String> distinct = new LinkedHashSet<>(isbns);
+        distinct.remove(null);
+        load(new ArrayList<>(distinct), store::findAllByIsbn, Book::getIsbn, found);
+        return found;
+    }
+
+    /**
+     * Queries the store at most {@code LOOKUP_CHUNK} keys at a time and warms
+     * the by-id cache with the books found.
+     */
+    private <K> void load(List<K> keys, Function<List<K>, List<Book>> query, Function<Book, K> keyOf, Map<K, Book> found) {
+        for (int start = 0; start < keys.size(); start += LOOKUP_CHUNK) {
+            for (Book book : query.apply(keys.subList(start, Math.min(start + LOOKUP_CHUNK, keys.size())))) {
+                books.putIfAbsent(book.getId(), book);
+                found.put(keyOf.apply(book), book);
+            }
+        }
+    }
+
+    @Override
+    @CacheEvict(key = "#book.id")
     public void delete(Book book) {
         if(book == null || book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null");
         }
-        repository.delete(book);
+        deleteById(book.getId());
+    }
 
+    @Override
+    @CacheEvict(key = "#id")
+    public boolean deleteById(Long id) {
+        boolean deleted = store.deleteById(id) > 0;
+        if (deleted) {
+            searchIndex.remove(id);
+            queryCache.invalidate();
+        }
+        return deleted;
     }
 
     @Override
+    @Caching(
+            evict = @CacheEvict(key = "#book.id", condition = "#book?.id != null", beforeInvocation = true),
+            put = @CachePut(key = "#result.id")
+    )
     public Book update(Book book) {
         if(book == null || book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null");
         }
-        return repository.save(book);
+        if (book.getIsbn() == null) {
+            throw new BusinessException("Isbn é obrigatório");
+        }
+        Book updatedBook;
+        try {
+            updatedBook = store.replace(book)
+                    .orElseThrow(() -> new OptimisticLockingFailureException("Livro alterado por outra requisição"));
+        } catch (BookRelocationException e) {
+            throw new BusinessException("Isbn não pode ser alterado para outra partição");
+        } catch (DataIntegrityViolationException e) {
+            if (!BookConstraints.isDuplicateIsbn(e)) {
+                throw e;
+            }
+            isbnConflicts.increment();
+            throw new BusinessException("Isbn já cadastrado");
+        }
+        searchIndex.index(updatedBook);
+        queryCache.invalidate();
+        return updatedBook;
+    }
+
+    @Override
+    @Caching(
+            evict = @CacheEvict(key = "#id", beforeInvocation = true),
+            put = @CachePut(key = "#id", unless = "#result == null")
+    )
+    public Optional<Book> update(Long id, Book changes) {
+        if (store.updateTitleAndAuthor(id, changes.getVersion(), changes.getTitle(), changes.getAuthor()) == 0) {
+            if (changes.getVersion() != null && store.existsById(id)) {
+                throw new OptimisticLockingFailureException("Livro alterado por outra requisição");
+            }
+            return Optional.empty();
+        }
+        queryCache.invalidate();
+
+        Optional<Book> updatedBook = store.findById(id);
+        updatedBook.ifPresent(searchIndex::index);
+        return updatedBook;
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter,
-                ExampleMatcher
-                        .matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-        );
-        return repository.findAll(example, pageRequest);
+        return find(filter, pageRequest, CountStrategy.EXACT);
+    }
+
+    /**
+     * Concurrent identical requests share one query. There is no enclosing
+     * transaction, so callers waiting on another's query do not hold a connection.
+     */
+    @Override
+    public CountedPage<Book> find(Book filter, Pageable pageRequest, CountStrategy countStrategy) {
+        BookQueryCache.Key key = BookQueryCache.Key.of(queryCache.generation(), filter, pageRequest);
+        return pageLoads.execute(Arrays.asList(key, countStrategy), () -> findPage(filter, pageRequest, countStrategy));
+    }
+
+    private CountedPage<Book> findPage(Book filter, Pageable pageRequest, CountStrategy countStrategy) {
+        Optional<BookQueryCache.Entry> cached = queryCache.get(filter, pageRequest);
+        if (cached.isPresent()) {
+            List<Book> books = findAllInOrder(cached.get().getIds());
+            return new CountedPage<>(books, pageRequest, cached.get().getTotal(), CountStrategy.EXACT);
+        }
+
+        long generation = queryCache.generation();
+        if (countStrategy == CountStrategy.EXACT || pageRequest.isUnpaged()) {
+            Page<Book> page = store.findAll(filter, pageRequest);
+            queryCache.put(generation, filter, pageRequest, page);
+            return new CountedPage<>(page, CountStrategy.EXACT);
+        }
+
+        Slice<Book> slice = store.findSlice(filter, pageRequest);
+        long seen = pageRequest.getOffset() + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || pageRequest.getOffset() == 0)) {
+            // the last page: its end is the total
+            Page<Book> page = new PageImpl<>(slice.getContent(), pageRequest, seen);
+            queryCache.put(generation, filter, pageRequest, page);
+            return new CountedPage<>(page, CountStrategy.EXACT);
+        }
+        if (countStrategy == CountStrategy.NONE) {
+            return new CountedPage<>(slice.getContent(), pageRequest, slice.hasNext() ? seen + 1 : seen, CountStrategy.NONE);
+        }
+        if (countStrategy == CountStrategy.ESTIMATED && isUnfiltered(filter)) {
+            OptionalLong estimate = store.estimateCount();
+            if (estimate.isPresent()) {
+                long total = Math.max(estimate.getAsLong(), slice.hasNext() ? seen + 1 : seen);
+                return new CountedPage<>(slice.getContent(), pageRequest, total, CountStrategy.ESTIMATED);
+            }
+        }
+        OptionalLong count = queryCache.getCount(filter);
+        long total = count.isPresent() ? count.getAsLong() : store.count(filter);
+        if (!count.isPresent()) {
+            queryCache.putCount(filter, total);
+        }
+        return new CountedPage<>(slice.getContent(), pageRequest, total, CountStrategy.CACHED);
+    }
+
+    private static boolean isUnfiltered(Book filter) {
+        return filter.getId() == null && filter.getTitle() == null && filter.getAuthor() == null && filter.getIsbn() == null;
+    }
+
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return store.findAfter(filter, afterId, size);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        List<Long> ids = searchIndex.search(query, limit);
+        return findAllInOrder(ids.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private List<Book> findAllInOrder(long[] ids) {
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Long> idList = Arrays.stream(ids).boxed().collect(Collectors.toList());
+        Map<Long, Book> books = store.findAllById(idList).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return idList.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long catalogVersion() {
+        return queryCache.generation();
+    }
+
+    @Override
+    public void export(Consumer<Book> consumer) {
+        store.forEach(consumer);
     }
 }
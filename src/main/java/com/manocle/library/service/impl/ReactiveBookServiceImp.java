@@ -0,0 +1,80 @@
+package com.manocle.library.service.impl;
+
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookConstraints;
+import com.manocle.library.model.repository.ReactiveBookRepository;
+import com.manocle.library.service.ReactiveBookService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@ConditionalOnProperty(name = "library.book-service", havingValue = "reactive")
+public class ReactiveBookServiceImp implements ReactiveBookService {
+
+    private ReactiveBookRepository repository;
+    private final AtomicLong catalogVersion = new AtomicLong(System.currentTimeMillis());
+
+    public ReactiveBookServiceImp(ReactiveBookRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        return repository.insert(book)
+                .doOnNext(saved -> catalogVersion.incrementAndGet())
+                .onErrorMap(e -> e instanceof DataIntegrityViolationException && BookConstraints.isDuplicateIsbn(e),
+                        e -> new BusinessException("Isbn já cadastrado"));
+    }
+
+    @Override
+    public Mono<Book> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return repository.deleteById(id)
+                .map(deleted -> deleted > 0)
+                .doOnNext(deleted -> {
+                    if (deleted) {
+                        catalogVersion.incrementAndGet();
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Book> update(Long id, Book changes) {
+        return repository.updateTitleAndAuthor(id, changes.getVersion(), changes.getTitle(), changes.getAuthor())
+                .flatMap(updated -> {
+                    if (updated > 0) {
+                        catalogVersion.incrementAndGet();
+                        return repository.findById(id);
+                    }
+                    if (changes.getVersion() == null) {
+                        return Mono.empty();
+                    }
+                    return repository.findById(id)
+                            .flatMap(book -> Mono.<Book>error(new OptimisticLockingFailureException("Livro alterado por outra requisição")));
+                });
+    }
+
+    @Override
+    public Mono<Page<Book>> find(Book filter, Pageable pageRequest) {
+        return Mono.zip(repository.findAll(filter, pageRequest).collectList(), repository.count(filter))
+                .<Page<Book>>map(result -> new PageImpl<>(result.getT1(), pageRequest, result.getT2()));
+    }
+
+    @Override
+    public long catalogVersion() {
+        return catalogVersion.get();
+    }
+}
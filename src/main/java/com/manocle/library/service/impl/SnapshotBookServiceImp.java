@@ -0,0 +1,122 @@
+package com.manocle.library.service.impl;
+
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.BookService;
+import com.manocle.library.service.snapshot.BookSnapshot;
+import com.manocle.library.service.snapshot.BookSnapshotStore;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Read-only {@link BookService} for edge nodes, served from a memory-mapped
+ * {@link BookSnapshot} instead of a database. Each call reads the snapshot that
+ * is current when it starts. Writes are rejected.
+ */
+@Service
+@ConditionalOnProperty(name = "library.book-service", havingValue = "snapshot")
+@Timed("library.books.service")
+public class SnapshotBookServiceImp implements BookService {
+
+    private static final String READ_ONLY = "Catálogo disponível apenas para leitura";
+
+    private BookSnapshotStore store;
+
+    public SnapshotBookServiceImp(BookSnapshotStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Book save(Book book) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public Optional<Book> getById(Long id) {
+        return store.current().findById(id);
+    }
+
+    @Override
+    public Map<Long, Book> getByIds(Collection<Long> ids) {
+        BookSnapshot snapshot = store.current();
+        Map<Long, Book> found = new HashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                snapshot.findById(id).ifPresent(book -> found.put(id, book));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<String, Book> getByIsbns(Collection<String> isbns) {
+        BookSnapshot snapshot = store.current();
+        Map<String, Book> found = new HashMap<>();
+        for (String isbn : isbns) {
+            if (isbn != null) {
+                snapshot.findByIsbn(isbn).ifPresent(book -> found.put(isbn, book));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void delete(Book book) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public Book update(Book book) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public Optional<Book> update(Long id, Book changes) {
+        throw new BusinessException(READ_ONLY);
+    }
+
+    @Override
+    public Page<Book> find(Book filter, Pageable pageRequest) {
+        return store.current().find(filter, pageRequest);
+    }
+
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return store.current().findAfter(filter, afterId, size);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return store.current().search(query, limit);
+    }
+
+    /**
+     * Changes whenever a new snapshot is swapped in.
+     */
+    @Override
+    public long catalogVersion() {
+        return store.current().createdAt();
+    }
+
+    @Override
+    public void export(Consumer<Book> consumer) {
+        store.current().forEach(consumer);
+    }
+}
@@ -0,0 +1,143 @@
+package com.manocle.library.service.search;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over title, author and isbn. Terms live in a sorted
+ * map so a query term also matches every indexed term it prefixes; results are
+ * ranked by field weight times idf, exact terms scoring above prefix matches.
+ * Writers are serialized, searches never block.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float AUTHOR_WEIGHT = 2f;
+    private static final float ISBN_WEIGHT = 1f;
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Set<String>> documents = new ConcurrentHashMap<>();
+
+    public synchronized void index(Book book) {
+        if (book.getId() == null) {
+            return;
+        }
+        remove(book.getId());
+
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, book.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, book.getAuthor(), AUTHOR_WEIGHT);
+        addTerms(terms, book.getIsbn(), ISBN_WEIGHT);
+        String compactIsbn = String.join("", tokenize(book.getIsbn()));
+        if (!compactIsbn.isEmpty()) {
+            terms.merge(compactIsbn, ISBN_WEIGHT, Math::max);
+        }
+
+        terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(book.getId(), weight));
+        documents.put(book.getId(), terms.keySet());
+    }
+
+    public synchronized void remove(Long id) {
+        Set<String> terms = id == null ? null : documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfPresent(term, (t, docs) -> {
+                docs.remove(id);
+                return docs.isEmpty() ? null : docs;
+            });
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Float> scores = null;
+        for (String token : tokens) {
+            Map<Long, Float> tokenScores = score(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        // keep only the best `limit` hits instead of sorting every match: a common
+        // word matches tens of thousands of books and the sort dominated the search
+        Comparator<Map.Entry<Long, Float>> ranking =
+                Map.Entry.<Long, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Float>> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        for (Map.Entry<Long, Float> hit : scores.entrySet()) {
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (ranking.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+        return best.stream()
+                .sorted(ranking)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Float> score(String token) {
+        Map<Long, Float> scores = new HashMap<>();
+        int total = Math.max(documents.size(), 1);
+
+        ConcurrentNavigableMap<String, Map<Long, Float>> matches = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        matches.forEach((term, docs) -> {
+            float idf = (float) Math.log(1 + (double) total / Math.max(docs.size(), 1));
+            float factor = term.equals(token) ? 1f : PREFIX_FACTOR;
+            docs.forEach((id, weight) -> scores.merge(id, weight * idf * factor, Math::max));
+        });
+        return scores;
+    }
+
+    private static void addTerms(Map<String, Float> terms, String value, float weight) {
+        for (String token : tokenize(value)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+
+    static List<String> tokenize(String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
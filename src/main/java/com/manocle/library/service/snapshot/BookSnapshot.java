@@ -0,0 +1,380 @@
+package com.manocle.library.service.snapshot;
+
+import com.manocle.library.model.entity.Book;
+import org.springframework.data.domain.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only, memory-mapped catalog snapshot written by {@link BookSnapshotWriter}.
+ * Big-endian layout:
+ * <pre>
+ * header   magic, format version, book count, isbn count, created-at and
+ *          section offsets, 64 bytes
+ * records  one 64-byte record per book in id order: id, version, then
+ *          (offset, length) in the string pool of title, author, isbn and
+ *          their lower-case forms; length -1 is null
+ * isbns    record numbers ordered by isbn bytes
+ * strings  UTF-8 string pool
+ * </pre>
+ * Ids are found by binary search over the records, ISBNs through the isbn
+ * index, and filters compare bytes in place. Only the books handed back to the
+ * caller are decoded, so serving allocates nothing per record scanned.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class BookSnapshot {
+
+    static final int MAGIC = 0x424B534E;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+    static final long NULL_VERSION = -1;
+
+    static final int ID = 0;
+    static final int VERSION = 8;
+    static final int TITLE = 16;
+    static final int AUTHOR = 24;
+    static final int ISBN = 32;
+    static final int TITLE_FOLDED = 40;
+    static final int AUTHOR_FOLDED = 48;
+    static final int ISBN_FOLDED = 56;
+
+    private static final Map<String, Integer> SORTABLE_FIELDS = new HashMap<>();
+
+    static {
+        SORTABLE_FIELDS.put("id", ID);
+        SORTABLE_FIELDS.put("title", TITLE);
+        SORTABLE_FIELDS.put("author", AUTHOR);
+        SORTABLE_FIELDS.put("isbn", ISBN);
+    }
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int isbnCount;
+    private final long createdAt;
+    private final int records;
+    private final int isbnIndex;
+    private final int strings;
+
+    private BookSnapshot(Path path, ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a book snapshot: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format " + buffer.getInt(4) + ": " + path);
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.isbnCount = buffer.getInt(12);
+        this.createdAt = buffer.getLong(16);
+        this.records = (int) buffer.getLong(24);
+        this.isbnIndex = (int) buffer.getLong(32);
+        this.strings = (int) buffer.getLong(40);
+        if ((long) strings + buffer.getLong(48) != buffer.capacity()) {
+            throw new IOException("Truncated snapshot: " + path);
+        }
+    }
+
+    /**
+     * Maps the file. The mapping outlives the file: it stays readable after the
+     * file is replaced or deleted, until this instance is collected.
+     */
+    public static BookSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + path);
+            }
+            return new BookSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public Optional<Book> findById(long id) {
+        int ordinal = ordinalOfId(id);
+        return ordinal < 0 ? Optional.empty() : Optional.of(book(ordinal));
+    }
+
+    public Optional<Book> findByIsbn(String isbn) {
+        byte[] key = isbn.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = isbnCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int ordinal = buffer.getInt(isbnIndex + middle * 4);
+            int comparison = compare(ordinal, ISBN, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return Optional.of(book(ordinal));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Same matching and ordering as the JPA {@code find}: every non-null filter
+     * property must match, strings case-insensitively as "contains"; unknown
+     * sort properties are ignored and id breaks ties.
+     */
+    public Page<Book> find(Book filter, Pageable pageRequest) {
+        IntPredicate matches = matcher(filter);
+        List<Sort.Order> orders = pageRequest.getSort().stream()
+                .filter(order -> SORTABLE_FIELDS.containsKey(order.getProperty()))
+                .collect(Collectors.toList());
+        long offset = pageRequest.isPaged() ? pageRequest.getOffset() : 0;
+        int limit = pageRequest.isPaged() ? (int) Math.min(offset + pageRequest.getPageSize(), count) : count;
+
+        boolean idOrder = orders.isEmpty() || (orders.size() == 1 && orders.get(0).getProperty().equals("id")
+                && orders.get(0).isAscending());
+        int total = 0;
+        List<Book> content = new ArrayList<>();
+        if (idOrder) {
+            for (int ordinal = first(filter); ordinal < last(filter); ordinal++) {
+                if (matches.test(ordinal)) {
+                    if (total >= offset && total < limit) {
+                        content.add(book(ordinal));
+                    }
+                    total++;
+                }
+            }
+            return new PageImpl<>(content, pageRequest, total);
+        }
+
+        // keep the first "limit" matches in sort order without sorting every match
+        Comparator<Integer> comparator = comparator(orders);
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(limit, 1), comparator.reversed());
+        for (int ordinal = first(filter); ordinal < last(filter); ordinal++) {
+            if (!matches.test(ordinal)) {
+                continue;
+            }
+            total++;
+            if (top.size() < limit) {
+                top.add(ordinal);
+            } else if (limit > 0 && comparator.compare(ordinal, top.peek()) < 0) {
+                top.poll();
+                top.add(ordinal);
+            }
+        }
+        List<Integer> sorted = new ArrayList<>(top);
+        sorted.sort(comparator);
+        for (int i = (int) Math.min(offset, sorted.size()); i < sorted.size(); i++) {
+            content.add(book(sorted.get(i)));
+        }
+        return new PageImpl<>(content, pageRequest, total);
+    }
+
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        IntPredicate matches = matcher(filter);
+        int start = Math.max(first(filter), afterId == null ? 0 : firstAbove(afterId));
+        List<Book> content = new ArrayList<>();
+        for (int ordinal = start; ordinal < last(filter) && content.size() <= size; ordinal++) {
+            if (matches.test(ordinal)) {
+                content.add(book(ordinal));
+            }
+        }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    /**
+     * Books where every whitespace-separated term of the query occurs in the
+     * title, author or isbn, in id order.
+     */
+    public List<Book> search(String query, int limit) {
+        byte[][] terms = Arrays.stream(query.toLowerCase(Locale.ROOT).trim().split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        List<Book> found = new ArrayList<>();
+        if (terms.length == 0) {
+            return found;
+        }
+        for (int ordinal = 0; ordinal < count && found.size() < limit; ordinal++) {
+            boolean all = true;
+            for (byte[] term : terms) {
+                if (!contains(ordinal, TITLE_FOLDED, term) && !contains(ordinal, AUTHOR_FOLDED, term)
+                        && !contains(ordinal, ISBN_FOLDED, term)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                found.add(book(ordinal));
+            }
+        }
+        return found;
+    }
+
+    public void forEach(Consumer<Book> consumer) {
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            consumer.accept(book(ordinal));
+        }
+    }
+
+    private IntPredicate matcher(Book filter) {
+        byte[] title = folded(filter.getTitle());
+        byte[] author = folded(filter.getAuthor());
+        byte[] isbn = folded(filter.getIsbn());
+        return ordinal -> contains(ordinal, TITLE_FOLDED, title)
+                && contains(ordinal, AUTHOR_FOLDED, author)
+                && contains(ordinal, ISBN_FOLDED, isbn);
+    }
+
+    private int first(Book filter) {
+        if (filter.getId() == null) {
+            return 0;
+        }
+        int ordinal = ordinalOfId(filter.getId());
+        return ordinal < 0 ? count : ordinal;
+    }
+
+    private int last(Book filter) {
+        if (filter.getId() == null) {
+            return count;
+        }
+        int ordinal = ordinalOfId(filter.getId());
+        return ordinal < 0 ? count : ordinal + 1;
+    }
+
+    private int ordinalOfId(long id) {
+        int ordinal = firstAbove(id - 1);
+        return ordinal < count && id(ordinal) == id ? ordinal : -1;
+    }
+
+    /**
+     * The first record whose id is greater than {@code id}, or the book count.
+     */
+    private int firstAbove(long id) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (id(middle) <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Comparator<Integer> comparator(List<Sort.Order> orders) {
+        Comparator<Integer> comparator = null;
+        for (Sort.Order order : orders) {
+            int field = SORTABLE_FIELDS.get(order.getProperty());
+            Comparator<Integer> next = field == ID ? Integer::compare : (a, b) -> compare(a, b, field);
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // records are in id order, so the record number is the id tie-breaker
+        return comparator.thenComparing(Integer::compare);
+    }
+
+    private long id(int ordinal) {
+        return buffer.getLong(record(ordinal) + ID);
+    }
+
+    private int record(int ordinal) {
+        return records + ordinal * RECORD_SIZE;
+    }
+
+    private boolean contains(int ordinal, int field, byte[] needle) {
+        if (needle == null) {
+            return true;
+        }
+        int position = strings + buffer.getInt(record(ordinal) + field);
+        int length = buffer.getInt(record(ordinal) + field + 4);
+        outer:
+        for (int i = 0; i <= length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (buffer.get(position + i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares two strings of the same field by unsigned UTF-8 bytes, which is
+     * code point order, nulls first.
+     */
+    private int compare(int a, int b, int field) {
+        int lengthA = buffer.getInt(record(a) + field + 4);
+        int lengthB = buffer.getInt(record(b) + field + 4);
+        if (lengthA < 0 || lengthB < 0) {
+            return Boolean.compare(lengthA >= 0, lengthB >= 0);
+        }
+        int positionA = strings + buffer.getInt(record(a) + field);
+        int positionB = strings + buffer.getInt(record(b) + field);
+        for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+            int comparison = Integer.compare(buffer.get(positionA + i) & 0xff, buffer.get(positionB + i) & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(lengthA, lengthB);
+    }
+
+    private int compare(int ordinal, int field, byte[] key) {
+        int length = buffer.getInt(record(ordinal) + field + 4);
+        int position = strings + buffer.getInt(record(ordinal) + field);
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int comparison = Integer.compare(buffer.get(position + i) & 0xff, key[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private Book book(int ordinal) {
+        int record = record(ordinal);
+        long version = buffer.getLong(record + VERSION);
+        return Book.builder()
+                .id(buffer.getLong(record + ID))
+                .version(version == NULL_VERSION ? null : version)
+                .title(string(record + TITLE))
+                .author(string(record + AUTHOR))
+                .isbn(string(record + ISBN))
+                .build();
+    }
+
+    private String string(int reference) {
+        int length = buffer.getInt(reference + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(strings + buffer.getInt(reference), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] folded(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+}
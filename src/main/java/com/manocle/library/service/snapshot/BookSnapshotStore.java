@@ -0,0 +1,118 @@
+package com.manocle.library.service.snapshot;
+
+import com.manocle.library.model.entity.Book;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Holds the snapshot being served and swaps in newer ones on {@link #refresh()}.
+ * With a source database the snapshot is rebuilt from its {@code book} table;
+ * without one, a snapshot copied over {@code path} by another process is picked
+ * up. A swap replaces a single reference, so a request that already holds a
+ * snapshot keeps reading it unchanged.
+ */
+@Slf4j
+public class BookSnapshotStore {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final Path path;
+    private final JdbcTemplate source;
+    private final TransactionTemplate readOnly;
+    private volatile BookSnapshot current;
+    private FileTime loaded;
+
+    /**
+     * Maps the existing snapshot at {@code path} right away, or builds the first
+     * one from {@code source} when there is none yet. A source without a
+     * {@code book} table fails here rather than overwriting the snapshot with an
+     * empty one on the first refresh.
+     */
+    public BookSnapshotStore(Path path, DataSource source) throws IOException {
+        this.path = path;
+        this.source = source == null ? null : new JdbcTemplate(source);
+        this.readOnly = source == null ? null : new TransactionTemplate(new DataSourceTransactionManager(source));
+        if (source != null) {
+            this.source.setFetchSize(FETCH_SIZE);
+            // without a transaction PostgreSQL ignores the fetch size and reads the whole table
+            this.readOnly.setReadOnly(true);
+            requireBookTable();
+        }
+
+        if (Files.exists(path)) {
+            swap();
+        } else if (source != null) {
+            rebuild();
+        } else {
+            throw new IllegalStateException("No snapshot at " + path + " and no source to build one from");
+        }
+        Metrics.gauge("library.snapshot.books", this, store -> store.current().size());
+        Metrics.gauge("library.snapshot.age.seconds", this,
+                store -> (System.currentTimeMillis() - store.current().createdAt()) / 1000.0);
+    }
+
+    public BookSnapshot current() {
+        return current;
+    }
+
+    public synchronized void refresh() throws IOException {
+        if (source != null) {
+            rebuild();
+        } else if (!Files.getLastModifiedTime(path).equals(loaded)) {
+            swap();
+        }
+    }
+
+    private void requireBookTable() {
+        try {
+            source.queryForList("select id, title, author, isbn, version from book where 1 = 0");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("The snapshot source has no book table to build from", e);
+        }
+    }
+
+    private void rebuild() throws IOException {
+        long start = System.nanoTime();
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(path)) {
+            try {
+                readOnly.executeWithoutResult(status -> source.query(
+                        "select id, title, author, isbn, version from book order by id",
+                        row -> {
+                            try {
+                                writer.add(Book.builder()
+                                        .id(row.getLong("id"))
+                                        .title(row.getString("title"))
+                                        .author(row.getString("author"))
+                                        .isbn(row.getString("isbn"))
+                                        .version(row.getObject("version", Long.class))
+                                        .build());
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+        }
+        swap();
+        log.info("Built snapshot of {} books in {} ms", current.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void swap() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        current = BookSnapshot.open(path);
+        loaded = modified;
+    }
+}
@@ -0,0 +1,193 @@
+package com.manocle.library.service.snapshot;
+
+import com.manocle.library.model.entity.Book;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes books, added in ascending id order, in the {@link BookSnapshot}
+ * layout. Records and strings are spooled to temporary files next to the
+ * target; {@link #finish()} assembles the snapshot and moves it over the target
+ * in one step, so readers only ever find complete snapshots there.
+ * <p>
+ * Only the ISBNs and distinct authors are held in memory while writing.
+ */
+public class BookSnapshotWriter implements Closeable {
+
+    private final Path target;
+    private final Path recordsPart;
+    private final Path stringsPart;
+    private final DataOutputStream records;
+    private final DataOutputStream strings;
+    private final Map<String, Long> authors = new HashMap<>();
+    private final List<byte[]> isbns = new ArrayList<>();
+    private final List<Integer> isbnOrdinals = new ArrayList<>();
+    private int count;
+    private long lastId = Long.MIN_VALUE;
+    private boolean finished;
+
+    public BookSnapshotWriter(Path target) throws IOException {
+        this.target = target;
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        this.recordsPart = target.resolveSibling(target.getFileName() + ".records.tmp");
+        this.stringsPart = target.resolveSibling(target.getFileName() + ".strings.tmp");
+        this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsPart), 1 << 16));
+        this.strings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsPart), 1 << 16));
+    }
+
+    public void add(Book book) throws IOException {
+        if (book.getId() == null || book.getId() <= lastId) {
+            throw new IllegalArgumentException(
+                    "Books must be added in ascending id order, got " + book.getId() + " after " + lastId);
+        }
+        lastId = book.getId();
+
+        records.writeLong(book.getId());
+        records.writeLong(book.getVersion() == null ? BookSnapshot.NULL_VERSION : book.getVersion());
+        long title = string(book.getTitle());
+        long author = author(book.getAuthor());
+        long isbn = string(book.getIsbn());
+        records.writeLong(title);
+        records.writeLong(author);
+        records.writeLong(isbn);
+        records.writeLong(folded(book.getTitle(), title));
+        records.writeLong(book.getAuthor() == null ? author : author(book.getAuthor().toLowerCase(Locale.ROOT)));
+        records.writeLong(folded(book.getIsbn(), isbn));
+
+        if (book.getIsbn() != null) {
+            isbns.add(book.getIsbn().getBytes(StandardCharsets.UTF_8));
+            isbnOrdinals.add(count);
+        }
+        count++;
+    }
+
+    /**
+     * Authors repeat across books, so each distinct one is stored once.
+     */
+    private long author(String value) {
+        return value == null ? string(null) : authors.computeIfAbsent(value, this::string);
+    }
+
+    /**
+     * The lower-case form shares the original's bytes when they are equal.
+     */
+    private long folded(String value, long reference) {
+        if (value == null) {
+            return reference;
+        }
+        String folded = value.toLowerCase(Locale.ROOT);
+        return folded.equals(value) ? reference : string(folded);
+    }
+
+    /**
+     * Appends the string to the pool and returns its reference as stored in a
+     * record: offset in the high half, length in the low half.
+     */
+    private long string(String value) {
+        if (value == null) {
+            return -1L & 0xffffffffL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long offset = strings.size();
+        if (offset + bytes.length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot string pool exceeds 2 GB");
+        }
+        try {
+            strings.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return offset << 32 | bytes.length;
+    }
+
+    public void finish() throws IOException {
+        records.close();
+        strings.close();
+
+        Integer[] ordinals = isbnOrdinals.toArray(new Integer[0]);
+        byte[][] keys = isbns.toArray(new byte[0][]);
+        Integer[] positions = new Integer[ordinals.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        long recordsOffset = BookSnapshot.HEADER_SIZE;
+        long isbnIndexOffset = recordsOffset + Files.size(recordsPart);
+        long stringsOffset = isbnIndexOffset + 4L * positions.length;
+        long stringsLength = Files.size(stringsPart);
+        if (stringsOffset + stringsLength > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot larger than 2 GB");
+        }
+
+        Path assembled = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(assembled,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(BookSnapshot.HEADER_SIZE);
+            header.putInt(BookSnapshot.MAGIC)
+                    .putInt(BookSnapshot.FORMAT_VERSION)
+                    .putInt(count)
+                    .putInt(positions.length)
+                    .putLong(System.currentTimeMillis())
+                    .putLong(recordsOffset)
+                    .putLong(isbnIndexOffset)
+                    .putLong(stringsOffset)
+                    .putLong(stringsLength)
+                    .putLong(0)
+                    .flip();
+            write(out, header);
+            append(out, recordsPart);
+            ByteBuffer index = ByteBuffer.allocate(4 * positions.length);
+            for (Integer position : positions) {
+                index.putInt(ordinals[position]);
+            }
+            index.flip();
+            write(out, index);
+            append(out, stringsPart);
+            out.force(true);
+        }
+        Files.move(assembled, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        close();
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void append(FileChannel out, Path part) throws IOException {
+        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < in.size()) {
+                position += in.transferTo(position, in.size() - position, out);
+            }
+        }
+    }
+
+    /**
+     * Removes the temporary files; without {@link #finish()} the target is left
+     * untouched.
+     */
+    @Override
+    public void close() throws IOException {
+        records.close();
+        strings.close();
+        Files.deleteIfExists(recordsPart);
+        Files.deleteIfExists(stringsPart);
+        if (!finished) {
+            Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".tmp"));
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.manocle.library.service.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.BookService;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Accepts book creations without waiting for the database. Each accepted write
+ * is journaled to disk and put on a bounded queue, which a single writer thread
+ * drains into {@link BookService#saveAll} in batches. Writes still in the
+ * journal when the application stops are queued again on the next start, so
+ * a write may be applied twice after a crash. The unique ISBN keeps the copy
+ * out, and a copy that matches the stored book is reported as created.
+ * <p>
+ * Outcomes are kept in memory for {@code status-retention}, up to
+ * {@code status-max-entries} of them, and can be looked up by tracking id.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "library.write-behind.enabled", havingValue = "true")
+public class BookWriteBehindQueue {
+
+    public enum Status {
+        PENDING, CREATED, REJECTED
+    }
+
+    @lombok.Value
+    public static class Write {
+        String trackingId;
+        Status status;
+        Long bookId;
+        String error;
+    }
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    private BookService service;
+    private BookWriteJournal journal;
+    private BlockingQueue<BookWriteJournal.Record> queue;
+    // keeps the journal and the queue in step, so an idle truncate never drops a write being accepted
+    private ReentrantLock lock = new ReentrantLock();
+    private Cache<String, Write> statuses;
+    private int batchSize;
+    private Duration retryDelay;
+    private Thread writer;
+    private volatile boolean running;
+    private boolean journalDirty;
+
+    public BookWriteBehindQueue(BookService service, ObjectMapper objectMapper,
+                                @Value("${library.write-behind.journal:data/write-behind.journal}") Path journalPath,
+                                @Value("${library.write-behind.capacity:10000}") int capacity,
+                                @Value("${library.write-behind.batch-size:500}") int batchSize,
+                                @Value("${library.write-behind.retry-delay:1s}") Duration retryDelay,
+                                @Value("${library.write-behind.status-retention:1h}") Duration statusRetention,
+                                @Value("${library.write-behind.status-max-entries:100000}") long statusMaxEntries)
+            throws IOException {
+        this.service = service;
+        this.journal = new BookWriteJournal(journalPath, objectMapper);
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.statuses = Caffeine.newBuilder().expireAfterWrite(statusRetention).maximumSize(statusMaxEntries).build();
+
+        List<BookWriteJournal.Record> pending = replay();
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, pending.size()));
+        this.queue.addAll(pending);
+        this.journalDirty = !pending.isEmpty();
+        Metrics.gauge("library.books.write-behind.queue", queue, Collection::size);
+    }
+
+    /**
+     * Rebuilds the queue and the known outcomes from the journal, then compacts it
+     * down to the writes that were not applied yet.
+     */
+    private List<BookWriteJournal.Record> replay() throws IOException {
+        Map<String, BookWriteJournal.Record> pending = new LinkedHashMap<>();
+        for (BookWriteJournal.Record record : journal.read()) {
+            if (record.getStatus() == Status.PENDING) {
+                pending.put(record.getTrackingId(), record);
+            } else {
+                pending.remove(record.getTrackingId());
+                statuses.put(record.getTrackingId(), write(record));
+            }
+        }
+        pending.keySet().forEach(trackingId -> statuses.put(trackingId, new Write(trackingId, Status.PENDING, null, null)));
+        journal.rewrite(new ArrayList<>(pending.values()));
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} write-behind writes from the journal", pending.size());
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "book-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Journals and queues the book, or returns empty when the queue is full. The
+     * journal is forced to disk outside the lock, once for all the writes
+     * accepted meanwhile.
+     */
+    public Optional<Write> accept(Book book) {
+        String trackingId = UUID.randomUUID().toString();
+        BookWriteJournal.Record record = new BookWriteJournal.Record(trackingId, copy(book), Status.PENDING, null, null);
+        Write write = new Write(trackingId, Status.PENDING, null, null);
+        long position;
+        lock.lock();
+        try {
+            if (queue.remainingCapacity() == 0) {
+                return Optional.empty();
+            }
+            position = journal.write(Collections.singletonList(record));
+            journalDirty = true;
+            statuses.put(trackingId, write);
+            queue.add(record);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
+        return Optional.of(write);
+    }
+
+    public Optional<Write> status(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<BookWriteJournal.Record> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                BookWriteJournal.Record first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    truncateIfIdle();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write-behind writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies the batch, retrying transient failures until they succeed or the
+     * application stops. Stopping leaves the batch in the journal. Any other
+     * failure is caused by some book in the batch, so the batch is applied one
+     * book at a time and the book that fails is rejected; retrying it would
+     * block every write queued behind it, across restarts too.
+     */
+    private void flush(List<BookWriteJournal.Record> batch) throws InterruptedException {
+        List<BookWriteJournal.Record> outcomes = null;
+        boolean oneByOne = false;
+        while (outcomes == null) {
+            try {
+                outcomes = oneByOne ? saveEach(batch) : save(batch);
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                if (!oneByOne && !isTransient(e)) {
+                    log.warn("Write-behind batch of {} failed, applying it one book at a time: {}", batch.size(), e.getMessage());
+                    oneByOne = true;
+                    continue;
+                }
+                log.warn("Write-behind batch of {} failed, retrying in {}: {}", batch.size(), retryDelay, e.getMessage());
+                Thread.sleep(retryDelay.toMillis());
+            }
+        }
+        journal.append(outcomes);
+        outcomes.forEach(outcome -> statuses.put(outcome.getTrackingId(), write(outcome)));
+    }
+
+    /**
+     * A book {@code saveAll} leaves out has an ISBN that is already taken, either
+     * by another book or by this same write: a retry after a failure that hid
+     * the commit, or a replay after a crash. A stored book with the same title
+     * and author is taken to be this write and reported as created.
+     */
+    private List<BookWriteJournal.Record> save(List<BookWriteJournal.Record> batch) {
+        Map<String, Book> saved = service.saveAll(batch.stream().map(record -> copy(record.getBook())).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+        List<String> taken = batch.stream()
+                .map(record -> record.getBook().getIsbn())
+                .filter(isbn -> !saved.containsKey(isbn))
+                .collect(Collectors.toList());
+        Map<String, Book> stored = taken.isEmpty() ? Collections.emptyMap() : service.getByIsbns(taken);
+
+        List<BookWriteJournal.Record> outcomes = new ArrayList<>();
+        for (BookWriteJournal.Record record : batch) {
+            Book book = saved.remove(record.getBook().getIsbn());
+            if (book == null) {
+                book = Optional.ofNullable(stored.get(record.getBook().getIsbn()))
+                        .filter(existing -> sameContent(existing, record.getBook()))
+                        .orElse(null);
+            }
+            outcomes.add(book != null ? created(record, book) : rejected(record, "Isbn já cadastrado"));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Books already applied by an earlier pass over the batch are found by
+     * {@link #save} and reported as created. Transient failures are left to the
+     * caller to retry.
+     */
+    private List<BookWriteJournal.Record> saveEach(List<BookWriteJournal.Record> batch) {
+        List<BookWriteJournal.Record> outcomes = new ArrayList<>();
+        for (BookWriteJournal.Record record : batch) {
+            try {
+                outcomes.addAll(save(Collections.singletonList(record)));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Write-behind rejected book with isbn {}", record.getBook().getIsbn(), e);
+                outcomes.add(rejected(record, "Livro recusado pelo banco de dados"));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Failures that may go away on their own: the database or a connection being
+     * unavailable, a lock timeout, a deadlock.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private static boolean sameContent(Book stored, Book written) {
+        return Objects.equals(stored.getTitle(), written.getTitle()) && Objects.equals(stored.getAuthor(), written.getAuthor());
+    }
+
+    private void truncateIfIdle() {
+        lock.lock();
+        try {
+            if (journalDirty && queue.isEmpty()) {
+                journal.truncate();
+                journalDirty = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        journal.close();
+    }
+
+    private static BookWriteJournal.Record created(BookWriteJournal.Record record, Book book) {
+        return new BookWriteJournal.Record(record.getTrackingId(), null, Status.CREATED, book.getId(), null);
+    }
+
+    private static BookWriteJournal.Record rejected(BookWriteJournal.Record record, String error) {
+        return new BookWriteJournal.Record(record.getTrackingId(), null, Status.REJECTED, null, error);
+    }
+
+    private static Write write(BookWriteJournal.Record record) {
+        return new Write(record.getTrackingId(), record.getStatus(), record.getBookId(), record.getError());
+    }
+
+    private static Book copy(Book book) {
+        return Book.builder().title(book.getTitle()).author(book.getAuthor()).isbn(book.getIsbn()).build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.manocle.library.service.writebehind;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.manocle.library.model.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only NDJSON file of accepted writes and their outcomes. Every append is
+ * forced to disk before it returns. Appends that arrive while a force is running
+ * wait for it and are then usually covered by the next single force, so
+ * concurrent writers share the cost of a sync instead of queuing one each.
+ * Locks rather than monitors, so waiting virtual threads release their carrier.
+ */
+@Slf4j
+class BookWriteJournal implements AutoCloseable {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader reader;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private FileChannel channel;
+    // bytes written since opening, and how many of them are known to be on disk
+    private long written;
+    private volatile long forced;
+
+    BookWriteJournal(Path path, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.reader = objectMapper.readerFor(Record.class);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = open();
+    }
+
+    /**
+     * Every record that was completely written, in order. A torn last line left
+     * by a crash during an append is skipped.
+     */
+    List<Record> read() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                records.add(reader.readValue(line));
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping unreadable write-behind journal line: {}", e.getOriginalMessage());
+            }
+        }
+        return records;
+    }
+
+    void append(List<Record> records) {
+        sync(write(records));
+    }
+
+    /**
+     * Writes the records without forcing them to disk, and returns the position
+     * to pass to {@link #sync} to do so.
+     */
+    long write(List<Record> records) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (Record record : records) {
+                lines.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            writeLock.lock();
+            try {
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+                return written;
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns once everything written up to {@code position} is on disk.
+     */
+    void sync(long position) {
+        if (forced >= position) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (forced >= position) {
+                return;
+            }
+            long target;
+            writeLock.lock();
+            try {
+                target = written;
+            } finally {
+                writeLock.unlock();
+            }
+            channel.force(false);
+            forced = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Atomically replaces the journal with the given records.
+     */
+    void rewrite(List<Record> records) throws IOException {
+        channel.close();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel rewritten = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Record record : records) {
+                rewritten.write(ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n")
+                        .getBytes(StandardCharsets.UTF_8)));
+            }
+            rewritten.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+    }
+
+    void truncate() {
+        writeLock.lock();
+        try {
+            channel.truncate(0);
+            channel.force(true);
+            forced = written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * An accepted write carries the book, a completed one the outcome.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Record {
+        private String trackingId;
+        private Book book;
+        private BookWriteBehindQueue.Status status;
+        private Long bookId;
+        private String error;
+    }
+}
@@ -0,0 +1,10 @@
+create sequence if not exists book_seq start with 1 increment by 50;
+
+create table if not exists book (
+    id bigint not null primary key,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    version bigint,
+    constraint uk_book_isbn unique (isbn)
+);
@@ -0,0 +1,8 @@
+create table if not exists book (
+    id bigint generated by default as identity primary key,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    version bigint not null,
+    constraint uk_book_isbn unique (isbn)
+);
@@ -2,10 +2,17 @@ package com.manocle.library.api.resource;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.dto.BookPageDTO;
+import com.manocle.library.config.WireFormatConfig;
 import com.manocle.library.exception.BusinessException;
 import com.manocle.library.model.entity.Book;
 import com.manocle.library.service.BookService;
+import com.manocle.library.service.CountStrategy;
+import com.manocle.library.service.CountedPage;
+import com.manocle.library.service.writebehind.BookWriteBehindQueue;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,28 +24,42 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@WebMvcTest
+@WebMvcTest(properties = {"library.catalog-etag.max-age=1h", "library.import.chunk-size=2"})
 @AutoConfigureMockMvc
+@Import(WireFormatConfig.class)
 public class BookControllerTest {
 
     static String BOOK_API = "/api/books";
@@ -49,6 +70,9 @@ public class BookControllerTest {
     @MockBean
     BookService service;
 
+    @MockBean
+    BookWriteBehindQueue writeBehind;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso")
     public void createBookTest() throws Exception {
@@ -103,6 +127,27 @@ public class BookControllerTest {
                 .andExpect(jsonPath("errors", hasSize(3)));
     }
 
+    @Test
+    @DisplayName("Deve lançar erro de validação quando o titulo não couber na coluna")
+    public void createBookWithTooLongTitleTest() throws Exception {
+
+        BookDTO dto = createNewBook();
+        dto.setTitle("a".repeat(256));
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)));
+
+        Mockito.verify(service, Mockito.never()).save(Mockito.any(Book.class));
+    }
+
     @Test
     @DisplayName("Deve lançar erro ao tentar cadastrar um livro com isbn já utilizado por outro")
     public void createBookWithDuplicatedIsbn() throws Exception {
@@ -128,6 +173,170 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve importar um lote de livros informando as falhas por item")
+    public void createBatchTest() throws Exception {
+
+        BookDTO duplicated = BookDTO.builder().author("Artur").title("Outro titulo").isbn("002").build();
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook(), new BookDTO(), duplicated));
+
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willAnswer(invocation -> {
+                    List<Book> books = invocation.getArgument(0);
+                    return books.subList(0, 1);
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(3))
+                .andExpect(jsonPath("created").value(1))
+                .andExpect(jsonPath("errors", hasSize(2)))
+                .andExpect(jsonPath("errors[0].index").value(1))
+                .andExpect(jsonPath("errors[0].errors", hasSize(3)))
+                .andExpect(jsonPath("errors[1].index").value(2))
+                .andExpect(jsonPath("errors[1].isbn").value("002"))
+                .andExpect(jsonPath("errors[1].errors[0]").value("Isbn já cadastrado"));
+
+    }
+
+    @Test
+    @DisplayName("Deve informar os livros ja importados quando o lote for interrompido no meio")
+    public void createTruncatedBatchTest() throws Exception {
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<BookDTO> books = Arrays.asList(createNewBook(),
+                BookDTO.builder().author("Artur").title("Outro titulo").isbn("002").build(),
+                BookDTO.builder().author("Artur").title("Terceiro titulo").isbn("003").build());
+        String json = objectMapper.writeValueAsString(books);
+        String truncated = json.substring(0, json.length() - 1) + ",{\"title\":\"Quarto";
+
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(truncated);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(3))
+                .andExpect(jsonPath("created").value(3))
+                .andExpect(jsonPath("errors", hasSize(1)))
+                .andExpect(jsonPath("errors[0].index").value(3));
+
+        Mockito.verify(service, Mockito.times(2)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar o lote interrompido antes de gravar qualquer livro")
+    public void createBatchTruncatedBeforeCommitTest() throws Exception {
+
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook()));
+        String truncated = json.substring(0, json.length() - 1) + ",{\"title\":\"Outro";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(truncated);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve importar um lote de livros em NDJSON")
+    public void createNdjsonBatchTest() throws Exception {
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        BookDTO other = BookDTO.builder().author("Artur").title("Outro titulo").isbn("002").build();
+        String ndjson = objectMapper.writeValueAsString(createNewBook()) + "\n" + objectMapper.writeValueAsString(other) + "\n";
+
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(ndjson);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2))
+                .andExpect(jsonPath("created").value(2))
+                .andExpect(jsonPath("errors", hasSize(0)));
+
+    }
+
+    @Test
+    @DisplayName("Deve enfileirar o livro e retornar o id de acompanhamento quando o cliente pedir resposta assincrona")
+    public void createBookAsyncTest() throws Exception {
+        BDDMockito.given(writeBehind.accept(Mockito.any(Book.class)))
+                .willReturn(Optional.of(new BookWriteBehindQueue.Write("abc", BookWriteBehindQueue.Status.PENDING, null, null)));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createNewBook()));
+
+        mvc
+                .perform(request)
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/books/writes/abc"))
+                .andExpect(jsonPath("trackingId").value("abc"))
+                .andExpect(jsonPath("status").value("PENDING"));
+
+        Mockito.verify(service, Mockito.never()).save(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar service unavailable quando a fila de escrita estiver cheia")
+    public void createBookAsyncFullQueueTest() throws Exception {
+        BDDMockito.given(writeBehind.accept(Mockito.any(Book.class))).willReturn(Optional.empty());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .header("Prefer", "respond-async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createNewBook()));
+
+        mvc.perform(request).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("Deve consultar a situacao de uma escrita enfileirada")
+    public void writeStatusTest() throws Exception {
+        BDDMockito.given(writeBehind.status("abc"))
+                .willReturn(Optional.of(new BookWriteBehindQueue.Write("abc", BookWriteBehindQueue.Status.CREATED, 10l, null)));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/writes/abc")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("status").value("CREATED"))
+                .andExpect(jsonPath("bookId").value(10));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/writes/xyz")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Deve obter informacoes de um livro.")
     public void getBookDetailsTest() throws Exception {
@@ -156,6 +365,34 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar not modified quando o etag do livro nao mudou")
+    public void getBookNotModifiedTest() throws Exception {
+        Long id = 1l;
+
+        Book book = Book.builder()
+                .id(id)
+                .author(createNewBook().getAuthor())
+                .title(createNewBook().getTitle())
+                .isbn(createNewBook().getIsbn())
+                .version(2l)
+                .build();
+
+        BDDMockito.given(service.getById(id)).willReturn(Optional.of(book));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id)).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-2\""));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + id))
+                        .header("If-None-Match", "\"1-2\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando o livro nao existir")
     public void bookNotFoundTest() throws Exception {
@@ -172,15 +409,54 @@ public class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Deve obter varios livros por id na ordem pedida informando os nao encontrados")
+    public void lookupByIdsTest() throws Exception {
+        Book first = Book.builder().id(1L).title("Primeiro").author("Artur").isbn("001").build();
+        Book third = Book.builder().id(3L).title("Terceiro").author("Artur").isbn("003").build();
+        Map<Long, Book> found = new HashMap<>();
+        found.put(1L, first);
+        found.put(3L, third);
+        BDDMockito.given(service.getByIds(Arrays.asList(3L, 2L, 1L))).willReturn(found);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/lookup"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[3,2,1]}");
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("books", hasSize(3)))
+                .andExpect(jsonPath("books[0].title").value("Terceiro"))
+                .andExpect(jsonPath("books[1]").value(Matchers.nullValue()))
+                .andExpect(jsonPath("books[2].title").value("Primeiro"))
+                .andExpect(jsonPath("missing").value(Matchers.contains(1)));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request quando a consulta em lote nao informar apenas ids ou apenas isbns")
+    public void invalidLookupTest() throws Exception {
+        for (String body : Arrays.asList("{}", "{\"ids\":[]}", "{\"ids\":[1],\"isbns\":[\"001\"]}")) {
+            mvc
+                    .perform(MockMvcRequestBuilders
+                            .post(BOOK_API.concat("/lookup"))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isBadRequest());
+        }
+        Mockito.verifyNoInteractions(service);
+    }
+
     @Test
     @DisplayName("Deve deletar um livro")
     public void deleteBookTest() throws Exception{
         Long id = 1l;
 
         BDDMockito
-                .given(service.getById(id))
-                .willReturn(
-                        Optional.of(Book.builder().id(id).build()));
+                .given(service.deleteById(id))
+                .willReturn(true);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/" + id))
@@ -198,8 +474,8 @@ public class BookControllerTest {
         Long id = 1l;
 
         BDDMockito
-                .given(service.getById(id))
-                .willReturn(Optional.empty());
+                .given(service.deleteById(id))
+                .willReturn(false);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/" + id))
@@ -209,6 +485,8 @@ public class BookControllerTest {
                 .perform(request)
                 .andExpect(status().isNotFound());
 
+        Mockito.verify(service, Mockito.never()).getById(id);
+
     }
 
     @Test
@@ -217,12 +495,6 @@ public class BookControllerTest {
 
         Long id = 1l;
         String json = new ObjectMapper().writeValueAsString(createNewBook());
-        Book updatingBook = Book
-                .builder()
-                .id(id)
-                .title("some title")
-                .author("some author")
-                .build();
 
         Book updatedBook = Book.builder().author("Artur")
                 .id(id)
@@ -232,13 +504,8 @@ public class BookControllerTest {
 
 
         BDDMockito
-                .given(service.getById(id))
-                .willReturn(
-                        Optional.of(updatingBook));
-
-        BDDMockito
-                .given(service.update(updatingBook))
-                .willReturn(updatedBook);
+                .given(service.update(Mockito.eq(id), Mockito.any(Book.class)))
+                .willReturn(Optional.of(updatedBook));
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + id))
@@ -256,6 +523,28 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar precondition failed ao atualizar um livro com etag desatualizado")
+    public void updateBookWithStaleETagTest() throws Exception {
+        Long id = 1l;
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        BDDMockito
+                .given(service.update(Mockito.eq(id), Mockito.argThat(changes -> Long.valueOf(3l).equals(changes.getVersion()))))
+                .willThrow(new OptimisticLockingFailureException("Livro alterado por outra requisição"));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/" + id))
+                .header("If-Match", "\"1-3\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     @DisplayName("Deve retornar not found ao tentar atualizar um livro inexistente")
     public void updateInexistentBookTest() throws Exception {
@@ -263,9 +552,8 @@ public class BookControllerTest {
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
         BDDMockito
-                .given(service.getById(id))
-                .willReturn(
-                        Optional.empty());
+                .given(service.update(Mockito.eq(id), Mockito.any(Book.class)))
+                .willReturn(Optional.empty());
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + id))
@@ -292,8 +580,8 @@ public class BookControllerTest {
                 .isbn(createNewBook().getIsbn())
                 .build();
 
-        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-                .willReturn( new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0,100), 1));
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.EXACT)))
+                .willReturn(new CountedPage<Book>(Arrays.asList(book), PageRequest.of(0,100), 1, CountStrategy.EXACT));
 
         String queryString = String.format("?title=%s&author=%s&page=0&size=100",book.getTitle(),book.getAuthor());
 
@@ -312,6 +600,264 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar not modified na listagem sem consultar os livros quando o catalogo nao mudou")
+    public void findBooksNotModifiedTest() throws Exception {
+
+        BDDMockito.given(service.catalogVersion()).willReturn(7l);
+        String etag = BookETag.ofCatalog(7l, System.currentTimeMillis(), Duration.ofHours(1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Artur"))
+                .header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(header().string("Cache-Control", "max-age=3600"));
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve expirar o etag da listagem ao fim da janela mesmo sem escritas nesta instancia")
+    public void catalogETagExpiresTest() {
+
+        Duration maxAge = Duration.ofSeconds(5);
+
+        assertThat(BookETag.ofCatalog(7l, 10_000, maxAge)).isEqualTo(BookETag.ofCatalog(7l, 14_999, maxAge));
+        assertThat(BookETag.ofCatalog(7l, 10_000, maxAge)).isNotEqualTo(BookETag.ofCatalog(7l, 15_000, maxAge));
+        assertThat(BookETag.ofCatalog(7l, 10_000, maxAge)).isNotEqualTo(BookETag.ofCatalog(8l, 10_000, maxAge));
+    }
+
+    @Test
+    @DisplayName("Deve paginar livros por cursor sem contar o total")
+    public void findBooksAfterCursorTest() throws Exception {
+
+        Book book = Book.builder()
+                .id(42l)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(41l), Mockito.eq(1)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String queryString = String.format("?author=%s&after=%s&size=1", book.getAuthor(), BookCursor.encode(41l));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(BookCursor.encode(42l)))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve informar a estrategia de contagem usada para o total")
+    public void findBooksCountStrategyTest() throws Exception {
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.ESTIMATED)))
+                .willReturn(new CountedPage<Book>(Arrays.asList(), PageRequest.of(0, 20), 5, CountStrategy.CACHED));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=java&count=estimated")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count-Strategy", "cached"))
+                .andExpect(jsonPath("totalElements").value(5));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?count=aproximado")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros em CBOR com envelope de pagina reduzido")
+    public void findBooksCborTest() throws Exception {
+        Book book = Book.builder().id(1l).title("As aventuras").author("Artur").isbn("001").build();
+
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.EXACT)))
+                .willReturn(new CountedPage<Book>(Arrays.asList(book), PageRequest.of(2, 10), 21, CountStrategy.EXACT));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=2&size=10"))
+                .accept(MediaType.APPLICATION_CBOR);
+
+        MvcResult result = mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn();
+
+        BookPageDTO page = new ObjectMapper(new CBORFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), BookPageDTO.class);
+        assertThat(page.getContent()).extracting(BookDTO::getIsbn).containsExactly("001");
+        assertThat(page.getPage()).isEqualTo(2);
+        assertThat(page.getSize()).isEqualTo(10);
+        assertThat(page.getTotalElements()).isEqualTo(21);
+    }
+
+    @Test
+    @DisplayName("Deve criar e obter um livro em Smile")
+    public void createAndGetBookSmileTest() throws Exception {
+        Book book = Book.builder().id(10l).title("As aventuras").author("Artur").isbn("001").build();
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(book);
+        BDDMockito.given(service.getById(10l)).willReturn(Optional.of(book));
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+        MediaType smileType = MediaType.parseMediaType(BookController.APPLICATION_SMILE_VALUE);
+
+        mvc
+                .perform(MockMvcRequestBuilders.post(BOOK_API)
+                        .contentType(smileType)
+                        .accept(smileType)
+                        .content(smile.writeValueAsBytes(createNewBook())))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(smileType));
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/10")).accept(smileType))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        BookDTO dto = smile.readValue(result.getResponse().getContentAsByteArray(), BookDTO.class);
+        assertThat(dto.getId()).isEqualTo(10l);
+        assertThat(dto.getIsbn()).isEqualTo("001");
+    }
+
+    @Test
+    @DisplayName("Deve manter a pagina em JSON quando o cliente nao informar o formato")
+    public void findBooksDefaultsToJsonTest() throws Exception {
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.EXACT)))
+                .willReturn(new CountedPage<Book>(Arrays.asList(), PageRequest.of(0, 20), 0, CountStrategy.EXACT));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("pageable.pageSize").value(20));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros por texto")
+    public void searchBooksTest() throws Exception {
+
+        Book book = Book.builder()
+                .id(1l)
+                .title(createNewBook().getTitle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(service.search("aventu", 5)).willReturn(Arrays.asList(book));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/search?q=aventu&size=5"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].id").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um cursor invalido")
+    public void findBooksWithInvalidCursorTest() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?after=nao-e-um-cursor"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo como NDJSON")
+    public void exportNdjsonTest() throws Exception {
+        givenExportedBooks(Book.builder().id(1l).title("As aventuras").author("Artur").isbn("001").build(),
+                Book.builder().id(2l).title("Outro").author("Fulano").isbn("002").build());
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"title\":\"As aventuras\",\"author\":\"Artur\",\"isbn\":\"001\"}\n" +
+                        "{\"id\":2,\"title\":\"Outro\",\"author\":\"Fulano\",\"isbn\":\"002\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo como CSV escapando os campos")
+    public void exportCsvTest() throws Exception {
+        givenExportedBooks(Book.builder().id(1l).title("Dom \"Casmurro\", o livro").author("Machado").isbn("001").build());
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")).accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=books.csv"))
+                .andExpect(content().string("id,title,author,isbn\r\n1,\"Dom \"\"Casmurro\"\", o livro\",Machado,001\r\n"));
+    }
+
+    @Test
+    @DisplayName("Deve comprimir a exportacao com gzip quando o cliente aceitar")
+    public void exportGzipTest() throws Exception {
+        givenExportedBooks(Book.builder().id(1l).title("As aventuras").author("Artur").isbn("001").build());
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv"))
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("id,title,author,isbn\r\n1,As aventuras,Artur,001\r\n");
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um formato de exportacao desconhecido")
+    public void exportUnknownFormatTest() throws Exception {
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void givenExportedBooks(Book... books) {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            Arrays.asList(books).forEach(consumer);
+            return null;
+        }).given(service).export(Mockito.any());
+    }
+
     private BookDTO createNewBook() {
         return BookDTO.builder()
                 .author("Artur")
@@ -0,0 +1,188 @@
+package com.manocle.library.api.resource;
+
+import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.mapper.BookMapper;
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.ReactiveBookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validation;
+import java.time.Duration;
+import java.util.Arrays;
+
+public class BookHandlerTest {
+
+    static String BOOK_API = "/api/books";
+
+    ReactiveBookService service;
+    WebTestClient client;
+
+    @BeforeEach
+    public void setUp() {
+        service = Mockito.mock(ReactiveBookService.class);
+        BookHandler handler = new BookHandler(service, Mappers.getMapper(BookMapper.class),
+                Validation.buildDefaultValidatorFactory().getValidator(), Duration.ofHours(1));
+        client = WebTestClient.bindToRouterFunction(new BookRouter().bookRoutes(handler)).build();
+    }
+
+    @Test
+    @DisplayName("Deve criar um livro com sucesso")
+    public void createBookTest() {
+        Book saved = new Book(10L, "As aventuras", "Artur", "001", 0L);
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(Mono.just(saved));
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("As aventuras").author("Artur").isbn("001").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isEqualTo(10)
+                .jsonPath("isbn").isEqualTo("001");
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro de validacao quando nao houver dados suficientes")
+    public void createInvalidBookTest() {
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao cadastrar livro com isbn duplicado")
+    public void createBookWithDuplicatedIsbnTest() {
+        BDDMockito.given(service.save(Mockito.any(Book.class)))
+                .willReturn(Mono.error(new BusinessException("Isbn já cadastrado")));
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("As aventuras").author("Artur").isbn("001").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Isbn já cadastrado");
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro com ETag e responder 304 quando nao modificado")
+    public void getBookDetailsTest() {
+        Book book = new Book(1L, "As aventuras", "Artur", "001", 2L);
+        BDDMockito.given(service.getById(1L)).willReturn(Mono.just(book));
+
+        client.get().uri(BOOK_API + "/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1-2\"")
+                .expectBody()
+                .jsonPath("title").isEqualTo("As aventuras");
+
+        client.get().uri(BOOK_API + "/1")
+                .header("If-None-Match", "\"1-2\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 quando o livro nao existir")
+    public void bookNotFoundTest() {
+        BDDMockito.given(service.getById(Mockito.anyLong())).willReturn(Mono.empty());
+        BDDMockito.given(service.deleteById(Mockito.anyLong())).willReturn(Mono.just(false));
+
+        client.get().uri(BOOK_API + "/1").exchange().expectStatus().isNotFound();
+        client.delete().uri(BOOK_API + "/1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro")
+    public void deleteBookTest() {
+        BDDMockito.given(service.deleteById(1L)).willReturn(Mono.just(true));
+
+        client.delete().uri(BOOK_API + "/1").exchange().expectStatus().isNoContent();
+    }
+
+    @Test
+    @DisplayName("Deve responder 412 quando o If-Match nao corresponder a versao atual")
+    public void updateBookPreconditionFailedTest() {
+        BDDMockito.given(service.update(Mockito.eq(1L), Mockito.any(Book.class)))
+                .willReturn(Mono.error(new OptimisticLockingFailureException("Livro alterado por outra requisição")));
+
+        client.put().uri(BOOK_API + "/1")
+                .header("If-Match", "\"1-0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("Novo").author("Autor").isbn("001").build())
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        Mockito.verify(service).update(Mockito.eq(1L), Mockito.argThat(changes -> changes.getVersion() == 0L));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros")
+    public void findBooksTest() {
+        Book book = new Book(1L, "As aventuras", "Artur", "001", 0L);
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(Mono.just(new PageImpl<>(Arrays.asList(book), PageRequest.of(0, 100), 1)));
+
+        client.get().uri(BOOK_API + "?title=aventuras&page=0&size=100")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("totalElements").isEqualTo(1)
+                .jsonPath("pageable.pageSize").isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Deve retornar not modified na listagem sem consultar os livros quando o catalogo nao mudou")
+    public void findBooksNotModifiedTest() {
+        BDDMockito.given(service.catalogVersion()).willReturn(7L);
+        String etag = BookETag.ofCatalog(7L, System.currentTimeMillis(), Duration.ofHours(1));
+
+        client.get().uri(BOOK_API + "?author=Artur")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectHeader().valueEquals("Cache-Control", "max-age=3600");
+
+        BDDMockito.given(service.catalogVersion()).willReturn(8L);
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(Mono.just(new PageImpl<>(Arrays.asList(), PageRequest.of(0, 20), 0)));
+
+        client.get().uri(BOOK_API + "?author=Artur")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", BookETag.ofCatalog(8L, System.currentTimeMillis(), Duration.ofHours(1)));
+
+        Mockito.verify(service, Mockito.times(1)).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para pagina ou tamanho invalidos")
+    public void findBooksInvalidPageTest() {
+        client.get().uri(BOOK_API + "?page=abc").exchange().expectStatus().isBadRequest();
+        client.get().uri(BOOK_API + "?page=-1").exchange().expectStatus().isBadRequest();
+        client.get().uri(BOOK_API + "?size=0").exchange().expectStatus().isBadRequest();
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+}
@@ -0,0 +1,62 @@
+package com.manocle.library.benchmark;
+
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.JpaBookStore;
+import com.manocle.library.service.cache.BookQueryCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The in-memory part of {@code BookServiceImp.find}: building the query by
+ * example from the filter and looking the page up in the query cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookFindBenchmark {
+
+    private BookQueryCache queryCache;
+    private Book filter;
+    private Book missingFilter;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        queryCache = new BookQueryCache(5000, 300, 10);
+        filter = Book.builder().title("Aventuras").author("Artur").build();
+        missingFilter = Book.builder().title("Outro").build();
+        pageRequest = PageRequest.of(0, 20, Sort.by("title"));
+
+        List<Book> content = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> Book.builder().id(id).title("Aventuras " + id).author("Artur").isbn("isbn-" + id).build())
+                .collect(Collectors.toList());
+        queryCache.put(queryCache.generation(), filter, pageRequest, new PageImpl<>(content, pageRequest, 100));
+    }
+
+    @Benchmark
+    public Example<Book> exampleOf() {
+        return JpaBookStore.exampleOf(filter);
+    }
+
+    @Benchmark
+    public Optional<BookQueryCache.Entry> queryCacheHit() {
+        return queryCache.get(filter, pageRequest);
+    }
+
+    @Benchmark
+    public Optional<BookQueryCache.Entry> queryCacheMiss() {
+        return queryCache.get(missingFilter, pageRequest);
+    }
+}
@@ -0,0 +1,79 @@
+package com.manocle.library.benchmark;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.manocle.library.api.dto.BookDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * JSON (de)serialization of {@link BookDTO} with an {@link ObjectMapper} built
+ * the way Spring Boot builds the application's one: single books, a listing
+ * page and an NDJSON import chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookJsonBenchmark {
+
+    private ObjectWriter bookWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader bookReader;
+    private BookDTO book;
+    private List<BookDTO> page;
+    private byte[] bookJson;
+    private byte[] ndjson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        bookWriter = objectMapper.writerFor(BookDTO.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookDTO.class));
+        bookReader = objectMapper.readerFor(BookDTO.class);
+
+        book = BookDTO.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        page = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> BookDTO.builder().id(id).title("Titulo " + id).author("Autor").isbn("isbn-" + id).build())
+                .collect(Collectors.toList());
+        bookJson = bookWriter.writeValueAsBytes(book);
+
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            lines.append(String.format("{\"title\":\"Livro %d\",\"author\":\"Autor %d\",\"isbn\":\"isbn-%d\"}%n", i, i % 50, i));
+        }
+        ndjson = lines.toString().getBytes();
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws IOException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public BookDTO deserializeBook() throws IOException {
+        return bookReader.readValue(bookJson);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeImportChunk() throws IOException {
+        try (MappingIterator<BookDTO> items = bookReader.readValues(ndjson)) {
+            return items.readAll();
+        }
+    }
+}
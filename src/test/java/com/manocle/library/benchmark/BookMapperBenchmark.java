@@ -0,0 +1,86 @@
+package com.manocle.library.benchmark;
+
+import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.mapper.BookMapper;
+import com.manocle.library.model.entity.Book;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Compares the generated {@link BookMapper} against the reflective ModelMapper
+ * it replaced. Run with {@code main} to get throughput plus the gc profiler's
+ * allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookMapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private BookDTO dto;
+    private Book book;
+    private List<Book> page;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = Mappers.getMapper(BookMapper.class);
+        dto = BookDTO.builder().title("As aventuras").author("Artur").isbn("001").build();
+        book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        page = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> Book.builder().id(id).title("Titulo " + id).author("Autor").isbn("isbn-" + id).build())
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Book modelMapperToEntity() {
+        return modelMapper.map(dto, Book.class);
+    }
+
+    @Benchmark
+    public Book mapperToEntity() {
+        return bookMapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public BookDTO modelMapperToDTO() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO mapperToDTO() {
+        return bookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public List<BookDTO> modelMapperPage() {
+        return page.stream().map(entity -> modelMapper.map(entity, BookDTO.class)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BookDTO> mapperPage() {
+        return bookMapper.toDTO(page);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
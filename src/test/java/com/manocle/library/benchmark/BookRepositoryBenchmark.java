@@ -0,0 +1,134 @@
+package com.manocle.library.benchmark;
+
+import com.manocle.library.LibraryApplication;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.JpaBookStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BookRepository} operations end to end against embedded H2, with the
+ * application's JPA configuration, at several table sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookRepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private EntityManager entityManager;
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // devtools is on the test classpath and does not recognise JMH as a test run
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(LibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.beans.factory.support.DisposableBeanAdapter=ERROR",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + tableSize + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        repository = context.getBean(BookRepository.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= tableSize; id++) {
+            rows.add(new Object[]{id, "Titulo " + id, "Autor " + (id % 100), "isbn-" + id});
+            if (rows.size() == 1000) {
+                jdbc.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)", rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)", rows);
+        }
+        // the pooled optimizer hands out the allocationSize ids below each sequence value
+        jdbc.execute("alter sequence book_seq restart with " + (tableSize + 100));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public boolean existsByIsbn() {
+        return repository.existsByIsbn("isbn-" + randomId());
+    }
+
+    @Benchmark
+    public Page<Book> findPageByExample() {
+        Book filter = Book.builder().author("autor " + ThreadLocalRandom.current().nextInt(100)).build();
+        return repository.findAll(JpaBookStore.exampleOf(filter), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Slice<Book> findAfter() {
+        return repository.findAfter(JpaBookStore.exampleOf(new Book()), randomId(), 20);
+    }
+
+    @Benchmark
+    public int saveAndRemove() {
+        Book book = repository.saveAndFlush(Book.builder()
+                .title("Novo")
+                .author("Autor")
+                .isbn("new-" + inserted.incrementAndGet())
+                .build());
+        return repository.removeById(book.getId());
+    }
+
+    @Benchmark
+    public Predicate examplePredicate() {
+        Book filter = Book.builder().title("Titulo").author("Autor").build();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        return QueryByExamplePredicateBuilder.getPredicate(root, builder, JpaBookStore.exampleOf(filter), EscapeCharacter.DEFAULT);
+    }
+}
@@ -0,0 +1,124 @@
+package com.manocle.library.benchmark;
+
+import com.manocle.library.LibraryApplication;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookStore;
+import com.manocle.library.service.BookService;
+import com.manocle.library.service.impl.BookServiceImp;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BookService.search} against the database query it replaces, a
+ * case-insensitive "contains" filter on the title, for a random title word.
+ * A common word appears in about 3% of the titles, so an unsorted slice stops
+ * early; a rare one in 10 titles, so the filter has to scan the whole table.
+ * The filter bypasses the query cache, so every call reaches H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class BookSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "amor", "guerra", "mar", "sertao", "cidade", "noite", "jardim", "rio", "sombra", "vento",
+            "pedra", "fogo", "casa", "estrada", "memoria", "silencio", "tempo", "lua", "floresta", "viagem",
+            "segredo", "ilha", "montanha", "cancao", "espelho", "janela", "deserto", "porto", "sonho", "caminho",
+            "verao", "inverno", "chuva", "fronteira", "reino", "castelo", "navio", "ponte", "torre", "campo",
+            "aurora", "labirinto", "oceano", "planeta", "estrela", "livro", "carta", "retrato", "festa", "batalha",
+            "raiz", "semente", "colheita", "tempestade", "farol", "cais", "vila", "quintal", "rua", "praca",
+            "mercado", "escola", "fabrica", "oficina", "palacio", "igreja", "moinho", "poco", "trilha", "vale"};
+    private static final String[] RARE_WORDS = {
+            "quimera", "alquimia", "zeppelin", "xadrez", "orquidea", "vulcao", "eclipse", "girassol", "harpa", "quasar"};
+    private static final int RARE_EVERY = 10_000;
+
+    @Param({"1000000"})
+    private int tableSize;
+
+    @Param({"common", "rare"})
+    private String frequency;
+
+    private String[] words;
+
+    private ConfigurableApplicationContext context;
+    private BookService service;
+    private BookStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // devtools is on the test classpath and does not recognise JMH as a test run
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(LibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.beans.factory.support.DisposableBeanAdapter=ERROR",
+                        "spring.datasource.url=jdbc:h2:mem:search-benchmark-" + tableSize + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        words = frequency.equals("rare") ? RARE_WORDS : WORDS;
+        service = context.getBean(BookService.class);
+        store = context.getBean(BookStore.class);
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(BookServiceImp.class).rebuildSearchIndex();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= tableSize; id++) {
+            String title = WORDS[(int) (id % WORDS.length)] + " e " + WORDS[(int) (id / WORDS.length % WORDS.length)]
+                    + " " + id;
+            if (id % RARE_EVERY == 0) {
+                title += " " + RARE_WORDS[(int) (id / RARE_EVERY % RARE_WORDS.length)];
+            }
+            rows.add(new Object[]{id, title, "Autor " + (id % 1000), "isbn-" + id});
+            if (rows.size() == 1000) {
+                jdbc.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)", rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)", rows);
+        }
+        jdbc.execute("alter sequence book_seq restart with " + (tableSize + 100));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomWord() {
+        return words[ThreadLocalRandom.current().nextInt(words.length)];
+    }
+
+    @Benchmark
+    public List<Book> search() {
+        return service.search(randomWord(), 20);
+    }
+
+    @Benchmark
+    public Page<Book> findContaining() {
+        return store.findAll(Book.builder().title(randomWord()).build(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Slice<Book> findContainingWithoutCount() {
+        return store.findSlice(Book.builder().title(randomWord()).build(), PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,161 @@
+package com.manocle.library.benchmark;
+
+import com.manocle.library.LibraryApplication;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.JpaBookStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link BookRepository} workloads under each tuning profile: concurrent point
+ * lookups and pages (oltp), chunked imports (bulk-load) and a full table stream
+ * (export), against embedded H2 seeded with {@value #TABLE_SIZE} books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookTuningProfileBenchmark {
+
+    static final int TABLE_SIZE = 20_000;
+    static final int IMPORT_SIZE = 2_000;
+
+    @Param({"default", "oltp", "bulk-load", "export"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transaction;
+    private TransactionTemplate readOnly;
+    private int importChunkSize;
+    private final AtomicLong imported = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // devtools is on the test classpath and does not recognise JMH as a test run
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(LibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.com.manocle.library.config.JdbcSettingsReport=INFO",
+                        "logging.level.org.springframework.beans.factory.support.DisposableBeanAdapter=ERROR",
+                        "spring.datasource.url=jdbc:h2:mem:tuning-" + profile + ";DB_CLOSE_DELAY=-1");
+        if (!profile.equals("default")) {
+            builder.profiles(profile);
+        }
+        context = builder.run();
+        repository = context.getBean(BookRepository.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        importChunkSize = context.getEnvironment().getProperty("library.import.chunk-size", Integer.class, 500);
+        seed();
+    }
+
+    private void seed() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= TABLE_SIZE; id++) {
+            rows.add(new Object[]{id, "Titulo " + id, "Autor " + (id % 100), "isbn-" + id});
+        }
+        jdbc.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)", rows);
+        // the pooled optimizer hands out the allocationSize ids below each sequence value
+        jdbc.execute("alter sequence book_seq restart with " + (TABLE_SIZE + 100));
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeImported() {
+        jdbc.update("delete from book where isbn like 'import-%'");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, TABLE_SIZE + 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Optional<Book> findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Page<Book> findPageByExample() {
+        Book filter = Book.builder().author("autor " + ThreadLocalRandom.current().nextInt(100)).build();
+        return repository.findAll(JpaBookStore.exampleOf(filter), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Set<String> findExistingIsbns() {
+        int count = ThreadLocalRandom.current().nextInt(1, 50);
+        return repository.findExistingIsbns(LongStream.range(0, count)
+                .mapToObj(i -> "isbn-" + randomId())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * {@value #IMPORT_SIZE} new books saved in chunks of the profile's
+     * {@code library.import.chunk-size}, one transaction each, like the batch import.
+     */
+    @Benchmark
+    public int importBooks() {
+        int saved = 0;
+        for (int start = 0; start < IMPORT_SIZE; start += importChunkSize) {
+            List<Book> chunk = new ArrayList<>();
+            for (int i = start; i < Math.min(start + importChunkSize, IMPORT_SIZE); i++) {
+                chunk.add(Book.builder()
+                        .title("Importado")
+                        .author("Autor")
+                        .isbn("import-" + imported.incrementAndGet())
+                        .build());
+            }
+            saved += transaction.execute(status -> {
+                repository.findExistingIsbns(chunk.stream().map(Book::getIsbn).collect(Collectors.toList()));
+                List<Book> books = repository.saveAll(chunk);
+                repository.flush();
+                return books.size();
+            });
+        }
+        return saved;
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return readOnly.execute(status -> {
+            try (Stream<Book> books = repository.streamAll()) {
+                return books.count();
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.manocle.library.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.manocle.library.api.dto.BookDTO;
+import com.manocle.library.api.dto.BookPageDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * A listing page as served today ({@code Page} as JSON) against the trimmed
+ * envelope in JSON, CBOR and Smile. Payload sizes are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookWireFormatBenchmark {
+
+    @Param({"20", "200"})
+    public int pageSize;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter pageImplWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader pageReader;
+    private Page<BookDTO> pageImpl;
+    private BookPageDTO page;
+    private byte[] serializedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper objectMapper = format.equals("cbor")
+                ? Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build()
+                : format.equals("smile")
+                ? Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build()
+                : json;
+        pageImplWriter = json.writer();
+        pageWriter = objectMapper.writerFor(BookPageDTO.class);
+        pageReader = objectMapper.readerFor(BookPageDTO.class);
+
+        List<BookDTO> content = LongStream.rangeClosed(1, pageSize)
+                .mapToObj(id -> BookDTO.builder()
+                        .id(id * 256 + 1)
+                        .title("Titulo do livro " + id)
+                        .author("Autor " + id % 50)
+                        .isbn("978-85-" + (100000 + id))
+                        .build())
+                .collect(Collectors.toList());
+        pageImpl = new PageImpl<>(content, PageRequest.of(3, pageSize), 100_000);
+        page = new BookPageDTO(content, 3, pageSize, 100_000);
+        serializedPage = pageWriter.writeValueAsBytes(page);
+
+        System.out.printf("%n%s page of %d: %d bytes (Page as JSON: %d bytes)%n",
+                format, pageSize, serializedPage.length, pageImplWriter.writeValueAsBytes(pageImpl).length);
+    }
+
+    @Benchmark
+    public byte[] serializePageImplJson() throws IOException {
+        return pageImplWriter.writeValueAsBytes(pageImpl);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public BookPageDTO deserializePage() throws IOException {
+        return pageReader.readValue(serializedPage);
+    }
+}
@@ -0,0 +1,115 @@
+package com.manocle.library.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing the request modes. Start the
+ * application (default, virtual-threads or reactive profile), then run:
+ *
+ * <pre>
+ * java ... LoadBenchmark http://localhost:8080 2000 30 1000
+ * </pre>
+ *
+ * arguments are base url, concurrent clients, duration in seconds and the number
+ * of books to seed through {@code POST /api/books} and read back through {@code GET /api/books/{id}}.
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int books = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long[] ids = seed(http, baseUrl, books);
+
+        AtomicLong ok = new AtomicLong();
+        ConcurrentHashMap<Integer, AtomicLong> failures = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                executor.submit(() -> {
+                    long[] samples = new long[1 << 16];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/books/" + id))
+                                .timeout(Duration.ofSeconds(10))
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                ok.incrementAndGet();
+                            } else {
+                                failures.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.computeIfAbsent(-1, s -> new AtomicLong()).incrementAndGet();
+                        }
+                        if (count < samples.length) {
+                            samples[count++] = System.nanoTime() - start;
+                        }
+                    }
+                    latencies.add(Arrays.copyOf(samples, count));
+                    return null;
+                });
+            }
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("clients=%d duration=%ds ok=%d throughput=%.1f req/s%n",
+                clients, seconds, ok.get(), ok.get() / (double) seconds);
+        System.out.printf("p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1.0));
+        failures.forEach((status, count) -> System.out.printf("status %d: %d%n", status, count.get()));
+    }
+
+    private static long[] seed(HttpClient http, String baseUrl, int books) throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        long[] ids = new long[books];
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < books; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    String json = String.format("{\"title\":\"Livro %d\",\"author\":\"Autor %d\",\"isbn\":\"load-%s-%d\"}", index, index % 50, run, index);
+                    String body = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/books"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(json))
+                            .build(), HttpResponse.BodyHandlers.ofString()).body();
+                    String id = body.substring(body.indexOf("\"id\":") + 5);
+                    ids[index] = Long.parseLong(id.substring(0, id.indexOf(',')));
+                    return null;
+                });
+            }
+        }
+        return ids;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
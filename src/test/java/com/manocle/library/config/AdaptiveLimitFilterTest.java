@@ -0,0 +1,146 @@
+package com.manocle.library.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimitFilterTest {
+
+    static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final String PROXY = "10.0.0.1";
+
+    @Test
+    @DisplayName("Deve rejeitar com 503 quando o orcamento de leitura se esgota, sem afetar as escritas")
+    public void separateBudgetsTest() throws Exception {
+        AdaptiveLimitFilter filter = new AdaptiveLimitFilter(limit(1), limit(1), null, null, Collections.emptyList());
+        MockHttpServletResponse rejectedRead = new MockHttpServletResponse();
+        MockHttpServletResponse acceptedWrite = new MockHttpServletResponse();
+
+        MockFilterChain chain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                try {
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), rejectedRead, new MockFilterChain());
+                    filter.doFilter(new MockHttpServletRequest("DELETE", "/api/books/1"), acceptedWrite, new MockFilterChain());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        MockHttpServletResponse acceptedRead = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), acceptedRead, chain);
+
+        assertThat(acceptedRead.getStatus()).isEqualTo(200);
+        assertThat(rejectedRead.getStatus()).isEqualTo(503);
+        assertThat(rejectedRead.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(acceptedWrite.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve manter ocupada a vaga de uma requisicao assincrona ate ela terminar")
+    public void asyncRequestTest() throws Exception {
+        AimdLimit reads = limit(1);
+        AdaptiveLimitFilter filter = new AdaptiveLimitFilter(reads, limit(1), null, null, Collections.emptyList());
+        MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/books/export");
+        export.setAsyncSupported(true);
+
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        assertThat(reads.inFlight()).isEqualTo(1);
+        assertThat(get(filter, "a").getStatus()).isEqualTo(503);
+
+        ((MockAsyncContext) export.getAsyncContext()).complete();
+
+        assertThat(reads.inFlight()).isZero();
+        assertThat(get(filter, "a").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar com 429 o cliente que excede a sua cota")
+    public void quotaTest() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        ClientQuotas quotas = new ClientQuotas(2, 2, clock::get);
+        AdaptiveLimitFilter filter = new AdaptiveLimitFilter(limit(10), limit(10), quotas, "X-Forwarded-For",
+                Collections.singletonList(PROXY));
+
+        assertThat(get(filter, "a").getStatus()).isEqualTo(200);
+        assertThat(get(filter, "a").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = get(filter, "a");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(get(filter, "b").getStatus()).isEqualTo(200);
+
+        clock.addAndGet(500 * MS);
+        assertThat(get(filter, "a").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o cabecalho do cliente quando a requisicao nao vem de um proxy confiavel")
+    public void untrustedClientHeaderTest() throws Exception {
+        ClientQuotas quotas = new ClientQuotas(1, 1, new AtomicLong()::get);
+        AdaptiveLimitFilter filter = new AdaptiveLimitFilter(limit(10), limit(10), quotas, "X-Forwarded-For",
+                Collections.singletonList(PROXY));
+
+        assertThat(get(filter, "10.0.0.9", "a").getStatus()).isEqualTo(200);
+        assertThat(get(filter, "10.0.0.9", "b").getStatus()).isEqualTo(429);
+        assertThat(get(filter, PROXY, "spoofed, 10.0.0.9").getStatus()).isEqualTo(429);
+        assertThat(get(filter, PROXY, "spoofed, 10.0.0.10").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve reduzir o limite quando a latencia passa do alvo e voltar a aumentar depois")
+    public void aimdTest() {
+        AimdLimit limit = new AimdLimit(10, 2, 20, Duration.ofMillis(100), 0.5);
+
+        limit.tryAcquire();
+        limit.onComplete(0, 300 * MS, false);
+        assertThat(limit.limit()).isEqualTo(5);
+
+        // a second slow response within the same window does not back off again
+        limit.tryAcquire();
+        limit.onComplete(0, 350 * MS, false);
+        assertThat(limit.limit()).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+        limit.onComplete(400 * MS, 410 * MS, false);
+        assertThat(limit.limit()).isEqualTo(6);
+        assertThat(limit.inFlight()).isEqualTo(4);
+
+        limit.tryAcquire();
+        limit.onComplete(450 * MS, 460 * MS, true);
+        assertThat(limit.limit()).isEqualTo(3);
+    }
+
+    private static MockHttpServletResponse get(AdaptiveLimitFilter filter, String client) throws Exception {
+        return get(filter, PROXY, client);
+    }
+
+    private static MockHttpServletResponse get(AdaptiveLimitFilter filter, String address, String forwardedFor)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+        request.setRemoteAddr(address);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static AimdLimit limit(int limit) {
+        return new AimdLimit(limit, 1, limit, Duration.ofSeconds(10), 0.9);
+    }
+}
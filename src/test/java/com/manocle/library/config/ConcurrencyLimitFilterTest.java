@@ -0,0 +1,53 @@
+package com.manocle.library.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    @DisplayName("Deve rejeitar com 503 quando o limite de requisicoes simultaneas for atingido")
+    public void rejectWhenLimitReachedTest() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 10);
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        AtomicInteger inner = new AtomicInteger();
+
+        MockFilterChain chain = new MockFilterChain() {
+            @Override
+            public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response) {
+                try {
+                    inner.incrementAndGet();
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), rejected, new MockFilterChain());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), accepted, chain);
+
+        assertThat(inner.get()).isEqualTo(1);
+        assertThat(accepted.getStatus()).isEqualTo(200);
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+    }
+
+    @Test
+    @DisplayName("Deve liberar a vaga ao final de cada requisicao")
+    public void releasePermitTest() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 10);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.manocle.library.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.servlet.ServletException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+
+    DataSource primary;
+    DataSource firstReplica;
+    DataSource secondReplica;
+    Connection primaryConnection;
+    Connection firstConnection;
+    Connection secondConnection;
+    AtomicLong clock;
+    ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        primary = Mockito.mock(DataSource.class);
+        firstReplica = Mockito.mock(DataSource.class);
+        secondReplica = Mockito.mock(DataSource.class);
+        primaryConnection = Mockito.mock(Connection.class);
+        firstConnection = Mockito.mock(Connection.class);
+        secondConnection = Mockito.mock(Connection.class);
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(firstReplica.getConnection()).thenReturn(firstConnection);
+        Mockito.when(secondReplica.getConnection()).thenReturn(secondConnection);
+
+        clock = new AtomicLong();
+        routing = new ReplicaRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica),
+                ReplicaRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofSeconds(1), clock::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve alternar entre as replicas em transacoes somente leitura")
+    public void readOnlyGoesToReplicasTest() throws SQLException {
+        clock.set(Duration.ofSeconds(5).toMillis());
+        transaction(true);
+
+        assertThat(routing.getConnection()).isSameAs(firstConnection);
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+        assertThat(routing.getConnection()).isSameAs(firstConnection);
+    }
+
+    @Test
+    @DisplayName("Deve usar o primario para escritas e para as leituras do mesmo cliente logo apos a escrita")
+    public void readYourWritesTest() throws Exception {
+        clock.set(Duration.ofSeconds(5).toMillis());
+        MockHttpServletResponse written = request(null, () -> {
+            transaction(false);
+            TransactionSynchronizationManager.initSynchronization();
+            assertThat(routing.getConnection()).isSameAs(primaryConnection);
+            commit();
+
+            transaction(true);
+            assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        });
+        String lastWrite = written.getHeader(ReadYourWritesFilter.LAST_WRITE_HEADER);
+        assertThat(lastWrite).isEqualTo("5000");
+
+        clock.addAndGet(500);
+        request(lastWrite, () -> assertThat(routing.getConnection()).isSameAs(primaryConnection));
+        request(null, () -> assertThat(routing.getConnection()).isSameAs(firstConnection));
+
+        clock.addAndGet(600);
+        request(lastWrite, () -> assertThat(routing.getConnection()).isSameAs(secondConnection));
+    }
+
+    @Test
+    @DisplayName("Nao deve prender o cliente ao primario por uma escrita desfeita")
+    public void rolledBackWriteTest() throws Exception {
+        clock.set(Duration.ofSeconds(5).toMillis());
+        MockHttpServletResponse response = request(null, () -> {
+            transaction(false);
+            TransactionSynchronizationManager.initSynchronization();
+            routing.getConnection();
+            TransactionSynchronizationManager.clearSynchronization();
+
+            transaction(true);
+            assertThat(routing.getConnection()).isSameAs(firstConnection);
+        });
+
+        assertThat(response.getHeader(ReadYourWritesFilter.LAST_WRITE_HEADER)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve usar o primario fora de transacoes")
+    public void noTransactionGoesToPrimaryTest() throws SQLException {
+        clock.set(Duration.ofSeconds(5).toMillis());
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Deve tirar de rotacao uma replica que falhar e devolve-la quando se recuperar")
+    public void unhealthyReplicaTest() throws SQLException {
+        clock.set(Duration.ofSeconds(5).toMillis());
+        transaction(true);
+        Mockito.when(firstReplica.getConnection()).thenThrow(new SQLException("down"));
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        assertThat(routing.healthyReplicas()).isEqualTo(1);
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+
+        Mockito.reset(firstReplica);
+        Mockito.when(firstReplica.getConnection()).thenReturn(firstConnection);
+        Mockito.when(firstConnection.isValid(Mockito.anyInt())).thenReturn(true);
+        Mockito.when(secondConnection.isValid(Mockito.anyInt())).thenReturn(true);
+        routing.checkReplicas(1);
+
+        assertThat(routing.healthyReplicas()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve usar o primario quando nenhuma replica estiver saudavel")
+    public void allReplicasDownTest() throws SQLException {
+        clock.set(Duration.ofSeconds(5).toMillis());
+        routing.checkReplicas(1);
+        transaction(true);
+
+        assertThat(routing.healthyReplicas()).isZero();
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    private MockHttpServletResponse request(String lastWrite, Requested requested) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+        if (lastWrite != null) {
+            request.addHeader(ReadYourWritesFilter.LAST_WRITE_HEADER, lastWrite);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ReadYourWritesFilter().doFilter(request, response, (req, res) -> {
+            try {
+                transaction(true);
+                requested.run();
+            } catch (SQLException e) {
+                throw new ServletException(e);
+            }
+        });
+        return response;
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    interface Requested {
+        void run() throws SQLException;
+    }
+
+    private void transaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+}
@@ -0,0 +1,48 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-test-primary;DB_CLOSE_DELAY=-1",
+        "library.datasource.replicas.read-your-writes=0s"
+})
+public class BookRepositoryReplicaTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-test-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    BookRepository repository;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("create table if not exists book (id bigint primary key, title varchar(255), " +
+                "author varchar(255), isbn varchar(255), version bigint)");
+        replica.execute("merge into book key (id) values (1000, 'Da replica', 'Fulano', 'replica-1', 0)");
+        registry.add("library.datasource.replicas.urls", () -> REPLICA_URL);
+    }
+
+    @Test
+    @DisplayName("Deve ler das replicas e escrever no primario")
+    public void readFromReplicaWriteToPrimaryTest(){
+        Optional<Book> fromReplica = repository.findById(1000l);
+
+        Book saved = repository.saveAndFlush(Book.builder().isbn("primario-1").author("Fulano").title("Do primario").build());
+
+        assertThat(fromReplica).map(Book::getTitle).contains("Da replica");
+        assertThat(repository.existsByIsbn("primario-1")).isFalse();
+        assertThat(repository.findById(saved.getId())).isEmpty();
+    }
+}
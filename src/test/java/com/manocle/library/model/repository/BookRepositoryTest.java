@@ -8,12 +8,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -63,6 +76,42 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar apenas os isbns ja cadastrados")
+    public void findExistingIsbnsTest(){
+
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+
+        Set<String> existing = repository.findExistingIsbns(Arrays.asList("123", "789"));
+
+        assertThat(existing).containsExactly("123");
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar a proxima fatia de livros apos o id informado")
+    public void findAfterTest(){
+
+        Book first = entityManager.persist(createNewBook("1"));
+        Book second = entityManager.persist(createNewBook("2"));
+        Book third = entityManager.persist(createNewBook("3"));
+
+        Example<Book> example = Example.of(Book.builder().title("aventuras").build(),
+                ExampleMatcher.matching().withIgnoreCase().withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        Slice<Book> slice = repository.findAfter(example, first.getId(), 1);
+
+        assertThat(slice.getContent()).containsExactly(second);
+        assertThat(slice.hasNext()).isTrue();
+
+        Slice<Book> last = repository.findAfter(example, second.getId(), 1);
+
+        assertThat(last.getContent()).containsExactly(third);
+        assertThat(last.hasNext()).isFalse();
+
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id")
     public void getBYId(){
@@ -89,6 +138,106 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve recusar um segundo livro com o mesmo isbn")
+    public void saveBookWithDuplicatedIsbnTest(){
+
+        entityManager.persist(createNewBook("123"));
+
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(createNewBook("123")));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(BookConstraints.isDuplicateIsbn(exception)).isTrue();
+
+    }
+
+    @Test
+    @DisplayName("Nao deve confundir outras violacoes de integridade com isbn duplicado")
+    public void otherIntegrityViolationTest(){
+
+        Book book = createNewBook("123");
+        book.setTitle(String.join("", Collections.nCopies(300, "a")));
+
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(book));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(BookConstraints.isDuplicateIsbn(exception)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro pelo id informando as linhas afetadas")
+    public void removeByIdTest(){
+        Book book = entityManager.persist(createNewBook("123"));
+
+        assertThat(repository.removeById(book.getId())).isEqualTo(1);
+        assertThat(repository.removeById(book.getId())).isEqualTo(0);
+        assertThat(entityManager.find(Book.class, book.getId())).isNull();
+
+    }
+
+    @Test
+    @DisplayName("Deve atualizar apenas os campos informados de um livro")
+    public void updateTitleAndAuthorTest(){
+        Book book = entityManager.persist(createNewBook("123"));
+
+        int updated = repository.updateTitleAndAuthor(book.getId(), null, "Novo titulo", null);
+
+        Book updatedBook = entityManager.find(Book.class, book.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(updatedBook.getTitle()).isEqualTo("Novo titulo");
+        assertThat(updatedBook.getAuthor()).isEqualTo("Fulano");
+        assertThat(updatedBook.getVersion()).isEqualTo(1);
+        assertThat(repository.updateTitleAndAuthor(book.getId() + 1, null, "Outro", "Outro")).isEqualTo(0);
+
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro apenas quando a versao informada for a atual")
+    public void updateTitleAndAuthorWithVersionTest(){
+        Book book = entityManager.persist(createNewBook("123"));
+
+        assertThat(repository.updateTitleAndAuthor(book.getId(), 5l, "Outro", null)).isEqualTo(0);
+        assertThat(repository.updateTitleAndAuthor(book.getId(), 0l, "Outro", null)).isEqualTo(1);
+        assertThat(repository.updateTitleAndAuthor(book.getId(), 0l, "Mais um", null)).isEqualTo(0);
+
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os livros em ordem de id sem anexa-los ao contexto de persistencia")
+    public void streamAllTest(){
+        Book first = entityManager.persist(createNewBook("123"));
+        Book second = entityManager.persist(createNewBook("456"));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Book> books;
+        try (Stream<Book> stream = repository.streamAll()) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        assertThat(books).extracting(Book::getId).containsExactly(first.getId(), second.getId());
+        assertThat(books).extracting(Book::getIsbn).containsExactly("123", "456");
+        assertThat(books).noneMatch(book -> entityManager.getEntityManager().contains(book));
+
+    }
+
+    @Test
+    @DisplayName("Deve obter uma pagina sem contar todos os livros")
+    public void findSliceTest(){
+        Arrays.asList("1", "2", "3").forEach(isbn -> entityManager.persist(createNewBook(isbn)));
+        entityManager.flush();
+        Example<Book> all = Example.of(new Book(), ExampleMatcher.matching().withIgnoreNullValues());
+
+        Slice<Book> first = repository.findSlice(all, PageRequest.of(0, 2, Sort.by(Sort.Order.desc("isbn"))));
+        Slice<Book> last = repository.findSlice(all, PageRequest.of(1, 2, Sort.by(Sort.Order.desc("isbn"))));
+
+        assertThat(first.getContent()).extracting(Book::getIsbn).containsExactly("3", "2");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting(Book::getIsbn).containsExactly("1");
+        assertThat(last.hasNext()).isFalse();
+        assertThat(repository.estimateCount()).isPresent();
+    }
+
     @Test
     @DisplayName("Deve deletar um livro")
     public void deleteBookTest(){
@@ -0,0 +1,100 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveBookRepositoryTest {
+
+    ReactiveBookRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema-reactive.sql"))
+                .populate(connectionFactory)
+                .block();
+        repository = new ReactiveBookRepository(DatabaseClient.create(connectionFactory));
+    }
+
+    @Test
+    @DisplayName("Deve salvar e obter um livro pelo id")
+    public void insertAndFindTest() {
+        Book saved = repository.insert(createNewBook("123")).block();
+
+        assertThat(saved.getId()).isNotNull();
+        assertThat(saved.getVersion()).isZero();
+        assertThat(repository.findById(saved.getId()).block()).isEqualTo(saved);
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao salvar dois livros com o mesmo isbn")
+    public void duplicatedIsbnTest() {
+        repository.insert(createNewBook("123")).block();
+
+        StepVerifier.create(repository.insert(createNewBook("123")))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Deve atualizar apenas quando a versao informada for a atual")
+    public void updateWithVersionTest() {
+        Book saved = repository.insert(createNewBook("123")).block();
+
+        assertThat(repository.updateTitleAndAuthor(saved.getId(), 1L, "Novo", null).block()).isZero();
+        assertThat(repository.updateTitleAndAuthor(saved.getId(), 0L, "Novo", null).block()).isEqualTo(1);
+
+        Book updated = repository.findById(saved.getId()).block();
+        assertThat(updated.getTitle()).isEqualTo("Novo");
+        assertThat(updated.getAuthor()).isEqualTo("Fulano");
+        assertThat(updated.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros ignorando maiusculas e tratando curingas como texto")
+    public void findAllTest() {
+        repository.insert(createNewBook("123")).block();
+        repository.insert(Book.builder().isbn("456").author("Beltrano").title("100% Java").build()).block();
+
+        assertThat(repository.findAll(Book.builder().title("AVENTURAS").build(), PageRequest.of(0, 10)).collectList().block())
+                .extracting(Book::getIsbn).containsExactly("123");
+        assertThat(repository.findAll(Book.builder().title("0%").build(), PageRequest.of(0, 10)).collectList().block())
+                .extracting(Book::getIsbn).containsExactly("456");
+        assertThat(repository.findAll(new Book(), PageRequest.of(0, 1, Sort.by(Sort.Order.desc("isbn")))).collectList().block())
+                .extracting(Book::getIsbn).containsExactly("456");
+        assertThat(repository.count(new Book()).block()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro pelo id")
+    public void deleteByIdTest() {
+        Book saved = repository.insert(createNewBook("123")).block();
+
+        assertThat(repository.deleteById(saved.getId()).block()).isEqualTo(1);
+        assertThat(repository.deleteById(saved.getId()).block()).isZero();
+    }
+
+    private Book createNewBook(String isbn) {
+        return Book.builder()
+                .isbn(isbn)
+                .author("Fulano")
+                .title("As aventuras")
+                .build();
+    }
+}
@@ -0,0 +1,205 @@
+package com.manocle.library.model.repository;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardedBookRepositoryTest {
+
+    static final int SHARDS = 3;
+
+    ExecutorService executor;
+    ShardedBookRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        List<DataSource> shards = new ArrayList<>();
+        String prefix = UUID.randomUUID().toString();
+        for (int i = 0; i < SHARDS; i++) {
+            DataSource shard = new DriverManagerDataSource("jdbc:h2:mem:" + prefix + "-" + i + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource("schema-shard.sql")).execute(shard);
+            shards.add(shard);
+        }
+        executor = Executors.newFixedThreadPool(SHARDS);
+        repository = new ShardedBookRepository(shards, executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve salvar no shard do isbn e obter o livro pelo id global")
+    public void insertAndFindTest() {
+        Book saved = repository.insert(createNewBook("123"));
+
+        assertThat(ShardedBookRepository.shardOfId(saved.getId())).isEqualTo(repository.shardOf("123"));
+        assertThat(saved.getVersion()).isZero();
+        assertThat(repository.findById(saved.getId())).contains(saved);
+        assertThat(repository.existsById(saved.getId())).isTrue();
+        assertThat(repository.findById(saved.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao salvar dois livros com o mesmo isbn")
+    public void duplicatedIsbnTest() {
+        repository.insert(createNewBook("123"));
+
+        assertThatThrownBy(() -> repository.insert(createNewBook("123")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Deve devolver apenas os livros gravados quando o lote de um shard tem isbn duplicado")
+    public void insertAllWithDuplicatedIsbnTest() {
+        repository.insert(createNewBook("123"));
+        List<Book> books = books(30);
+        Book duplicated = createNewBook("123");
+        books.add(duplicated);
+
+        List<Book> saved = repository.insertAll(books);
+
+        assertThat(saved).hasSize(30).doesNotContain(duplicated);
+        assertThat(saved).allMatch(book -> book.getId() != null);
+        assertThat(duplicated.getId()).isNull();
+        assertThat(repository.findAllById(saved.stream().map(Book::getId).collect(Collectors.toList()))).hasSize(30);
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote distribuindo os livros entre os shards")
+    public void insertAllTest() {
+        List<Book> books = books(30);
+        List<Book> saved = repository.insertAll(books);
+
+        assertThat(saved).hasSize(30);
+        assertThat(saved).usingElementComparator((a, b) -> a == b ? 0 : 1).containsExactlyInAnyOrderElementsOf(books);
+        assertThat(saved.stream().map(book -> ShardedBookRepository.shardOfId(book.getId())).distinct())
+                .hasSize(SHARDS);
+        assertThat(repository.findAllById(saved.stream().map(Book::getId).collect(Collectors.toList())))
+                .containsExactlyInAnyOrderElementsOf(saved);
+        assertThat(repository.findAllByIsbn(Arrays.asList("isbn-03", "isbn-17", "isbn-99")))
+                .extracting(Book::getIsbn)
+                .containsExactlyInAnyOrder("isbn-03", "isbn-17");
+    }
+
+    @Test
+    @DisplayName("Deve paginar e ordenar o resultado combinado dos shards")
+    public void findAllTest() {
+        repository.insertAll(books(30));
+
+        Page<Book> page = repository.findAll(new Book(), PageRequest.of(2, 4, Sort.by("isbn")));
+
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        assertThat(page.getContent()).extracting(Book::getIsbn)
+                .containsExactly("isbn-08", "isbn-09", "isbn-10", "isbn-11");
+
+        Page<Book> filtered = repository.findAll(Book.builder().title("LIVRO 2").build(),
+                PageRequest.of(0, 5, Sort.by(Sort.Order.desc("title"))));
+        assertThat(filtered.getTotalElements()).isEqualTo(11);
+        assertThat(filtered.getContent()).extracting(Book::getTitle)
+                .containsExactly("Livro 29", "Livro 28", "Livro 27", "Livro 26", "Livro 25");
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os livros em ordem de id global usando cursor")
+    public void findAfterTest() {
+        List<Long> ids = repository.insertAll(books(30)).stream()
+                .map(Book::getId).sorted().collect(Collectors.toList());
+
+        List<Long> read = new ArrayList<>();
+        Long after = null;
+        Slice<Book> slice;
+        do {
+            slice = repository.findAfter(new Book(), after, 7);
+            slice.forEach(book -> read.add(book.getId()));
+            after = read.isEmpty() ? null : read.get(read.size() - 1);
+        } while (slice.hasNext());
+
+        assertThat(read).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    @DisplayName("Deve atualizar apenas quando a versao informada for a atual")
+    public void updateWithVersionTest() {
+        Book saved = repository.insert(createNewBook("123"));
+
+        assertThat(repository.updateTitleAndAuthor(saved.getId(), 1L, "Novo", null)).isZero();
+        assertThat(repository.updateTitleAndAuthor(saved.getId(), 0L, "Novo", null)).isEqualTo(1);
+
+        Book updated = repository.findById(saved.getId()).get();
+        assertThat(updated.getTitle()).isEqualTo("Novo");
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(repository.deleteById(saved.getId())).isEqualTo(1);
+        assertThat(repository.findById(saved.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve sobrescrever o livro apenas no proprio shard")
+    public void replaceTest() {
+        Book saved = repository.insert(createNewBook("123"));
+        String otherShardIsbn = IntStream.range(0, 100).mapToObj(i -> "isbn-" + i)
+                .filter(isbn -> repository.shardOf(isbn) != repository.shardOf("123"))
+                .findFirst().get();
+
+        Optional<Book> replaced = repository.replace(new Book(saved.getId(), "Novo", "Ciclano", "123", 0L));
+
+        assertThat(replaced).hasValueSatisfying(book -> {
+            assertThat(book.getTitle()).isEqualTo("Novo");
+            assertThat(book.getVersion()).isEqualTo(1L);
+        });
+        assertThat(repository.replace(new Book(saved.getId(), "Outro", "Ciclano", "123", 0L))).isEmpty();
+        assertThatThrownBy(() -> repository.replace(new Book(saved.getId(), "Outro", "Ciclano", otherShardIsbn, null)))
+                .isInstanceOf(BookRelocationException.class);
+    }
+
+    @Test
+    @DisplayName("Deve paginar sem contar e contar separadamente o resultado dos shards")
+    public void findSliceAndCountTest() {
+        repository.insertAll(books(30));
+        Book filter = Book.builder().title("LIVRO 2").build();
+
+        Slice<Book> slice = repository.findSlice(filter, PageRequest.of(2, 4, Sort.by("isbn")));
+        Slice<Book> beyond = repository.findSlice(filter, PageRequest.of(3, 4, Sort.by("isbn")));
+
+        assertThat(slice.getContent()).extracting(Book::getIsbn).containsExactly("isbn-27", "isbn-28", "isbn-29");
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(repository.findSlice(filter, PageRequest.of(1, 4, Sort.by("isbn"))).hasNext()).isTrue();
+        assertThat(beyond.getContent()).isEmpty();
+        assertThat(repository.count(filter)).isEqualTo(11);
+    }
+
+    private static List<Book> books(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Book.builder()
+                        .isbn(String.format("isbn-%02d", i))
+                        .title("Livro " + i)
+                        .author("Autor " + i % 4)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static Book createNewBook(String isbn) {
+        return Book.builder().isbn(isbn).author("Fulano").title("As aventuras").build();
+    }
+}
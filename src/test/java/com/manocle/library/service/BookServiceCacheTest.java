@@ -0,0 +1,130 @@
+package com.manocle.library.service;
+
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.JpaBookStore;
+import com.manocle.library.service.cache.BookQueryCache;
+import com.manocle.library.service.impl.BookServiceImp;
+import com.manocle.library.service.search.BookSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(BookServiceCacheTest.Config.class)
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp(){
+        cacheManager.getCache("books").clear();
+    }
+
+    @Test
+    @DisplayName("Deve ler o livro do cache apos a primeira consulta")
+    public void getByIdFromCacheTest(){
+        Book book = createBook(1l);
+        Mockito.when(repository.findById(1l)).thenReturn(Optional.of(book));
+
+        service.getById(1l);
+        Optional<Book> cached = service.getById(1l);
+
+        assertThat(cached).contains(book);
+        Mockito.verify(repository, Mockito.times(1)).findById(1l);
+    }
+
+    @Test
+    @DisplayName("Nao deve guardar no cache livros inexistentes")
+    public void notCacheMissingBookTest(){
+        Mockito.when(repository.findById(2l)).thenReturn(Optional.empty());
+
+        service.getById(2l);
+        service.getById(2l);
+
+        Mockito.verify(repository, Mockito.times(2)).findById(2l);
+    }
+
+    @Test
+    @DisplayName("Deve consultar no banco apenas os livros da consulta em lote que nao estao no cache")
+    public void getByIdsFromCacheTest(){
+        Book cached = createBook(4l);
+        Book stored = createBook(5l);
+        Mockito.when(repository.findById(4l)).thenReturn(Optional.of(cached));
+        Mockito.when(repository.findAllById(Arrays.asList(5l, 6l))).thenReturn(Arrays.asList(stored));
+
+        service.getById(4l);
+        Map<Long, Book> books = service.getByIds(Arrays.asList(4l, 5l, 6l, 4l));
+
+        assertThat(books).containsOnlyKeys(4l, 5l);
+        assertThat(service.getById(5l)).contains(stored);
+        Mockito.verify(repository).findAllById(Arrays.asList(5l, 6l));
+        Mockito.verify(repository, Mockito.never()).findById(5l);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache ao deletar e atualizar um livro")
+    public void invalidateOnWriteTest(){
+        Book book = createBook(3l);
+        Book updated = createBook(3l);
+        updated.setTitle("Novo titulo");
+        Mockito.when(repository.findById(3l)).thenReturn(Optional.of(book));
+        Mockito.when(repository.save(book)).thenReturn(updated);
+
+        service.getById(3l);
+        service.update(book);
+
+        assertThat(service.getById(3l)).contains(updated);
+
+        service.delete(updated);
+        service.getById(3l);
+
+        Mockito.verify(repository, Mockito.times(2)).findById(3l);
+    }
+
+    private Book createBook(Long id) {
+        return Book.builder()
+                .id(id)
+                .isbn("123")
+                .author("Fulano")
+                .title("As aventuras")
+                .build();
+    }
+
+    @EnableCaching(proxyTargetClass = true)
+    @Import({BookServiceImp.class, JpaBookStore.class, BookSearchIndex.class, BookQueryCache.class})
+    static class Config {
+
+        @Bean
+        public CacheManager cacheManager(){
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager("books");
+            cacheManager.setAllowNullValues(false);
+            return cacheManager;
+        }
+    }
+}
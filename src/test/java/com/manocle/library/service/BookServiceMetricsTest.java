@@ -0,0 +1,109 @@
+package com.manocle.library.service;
+
+import com.manocle.library.config.MetricsConfig;
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.JpaBookStore;
+import com.manocle.library.service.cache.BookQueryCache;
+import com.manocle.library.service.impl.BookServiceImp;
+import com.manocle.library.service.search.BookSearchIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SpringJUnitConfig(BookServiceMetricsTest.Config.class)
+public class BookServiceMetricsTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp(){
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        Metrics.removeRegistry(registry);
+        registry.clear();
+    }
+
+    @Test
+    @DisplayName("Deve registrar o tempo de cada operacao do servico")
+    public void timeServiceMethodsTest(){
+        Mockito.when(repository.findById(1l)).thenReturn(Optional.empty());
+
+        service.getById(1l);
+        service.getById(1l);
+
+        Timer timer = registry.find("library.books.service").tag("method", "getById").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve contar conflitos de isbn ao salvar livros")
+    public void countIsbnConflictsTest(){
+        Book duplicated = Book.builder().isbn("123").build();
+        Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenThrow(new DataIntegrityViolationException("uk_book_isbn"));
+        Mockito.when(repository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Collections.singleton("123"));
+        Mockito.when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Throwable exception = catchThrowable(() -> service.save(duplicated));
+        service.saveAll(Arrays.asList(Book.builder().isbn("123").build(), Book.builder().isbn("456").build()));
+
+        assertThat(exception).isInstanceOf(BusinessException.class);
+        assertThat(registry.get("library.books.isbn.conflicts").counter().count()).isEqualTo(2);
+        assertThat(registry.get("library.books.service").tag("method", "save").tag("exception", "BusinessException").timer().count())
+                .isEqualTo(1);
+    }
+
+    // not a @Configuration: the application's component scan would pick it up in the JMH benchmark contexts
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @Import({MetricsConfig.class, BookServiceImp.class, JpaBookStore.class, BookSearchIndex.class, BookQueryCache.class})
+    static class Config {
+
+        @Bean
+        public MeterRegistry meterRegistry(){
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public CacheManager cacheManager(){
+            return new ConcurrentMapCacheManager("books");
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.manocle.library.service;
 import com.manocle.library.exception.BusinessException;
 import com.manocle.library.model.entity.Book;
 import com.manocle.library.model.repository.BookRepository;
+import com.manocle.library.model.repository.JpaBookStore;
+import com.manocle.library.service.cache.BookQueryCache;
 import com.manocle.library.service.impl.BookServiceImp;
+import com.manocle.library.service.search.BookSearchIndex;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,16 +15,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -36,7 +53,9 @@ public class BookServiceTest {
 
     @BeforeEach
     public void setUp(){
-        this.service = new BookServiceImp(repository);
+        this.service = new BookServiceImp(new JpaBookStore(repository, Mockito.mock(PlatformTransactionManager.class)),
+                new BookSearchIndex(), new BookQueryCache(100, 30, 10),
+                new ConcurrentMapCacheManager("books"));
     }
 
     @Test
@@ -44,9 +63,8 @@ public class BookServiceTest {
     public void saveBookTest(){
 
         Book book = createBook();
-        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
 
-        Mockito.when(repository.save(book)).thenReturn(
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(
                 Book.builder()
                     .id(1l)
                     .author("Fulano")
@@ -69,7 +87,7 @@ public class BookServiceTest {
     public void sholdNotSaveABookWithDuplicatedISBN(){
 
         Book book = createBook();
-        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(new DataIntegrityViolationException("uk_book_isbn"));
 
         Throwable exception = Assertions.catchThrowable(() -> service.save(book));
 
@@ -77,11 +95,42 @@ public class BookServiceTest {
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("Isbn já cadastrado");
 
-        Mockito.verify(repository,Mockito.never()).save(book);
+        Mockito.verify(repository,Mockito.never()).existsByIsbn(Mockito.anyString());
 
 
     }
 
+    @Test
+    @DisplayName("Deve repassar violacoes de integridade que nao sejam de isbn duplicado")
+    public void shouldRethrowOtherIntegrityViolations(){
+
+        Book book = createBook();
+        DataIntegrityViolationException tooLong = new DataIntegrityViolationException("Value too long for column TITLE");
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(tooLong);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.save(book));
+
+        assertThat(exception).isSameAs(tooLong);
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote apenas os livros com isbn ainda nao cadastrado")
+    public void saveAllBooksTest(){
+
+        Book registered = createBook();
+        Book newBook = Book.builder().isbn("456").author("Fulano").title("Outro").build();
+        Book repeated = Book.builder().isbn("456").author("Fulano").title("Repetido").build();
+
+        Mockito.when(repository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Collections.singleton("123"));
+        Mockito.when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Book> savedBooks = service.saveAll(Arrays.asList(registered, newBook, repeated));
+
+        assertThat(savedBooks).containsExactly(newBook);
+        Mockito.verify(repository, Mockito.times(1)).flush();
+
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id")
     public void getByIdTest(){
@@ -149,6 +198,21 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve lançar erro de negócio ao tentar atualizar um livro sem isbn")
+    public void updateBookWithoutIsbnTest(){
+        Book book = createBook();
+        book.setId(1l);
+        book.setIsbn(null);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.update(book));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn é obrigatório");
+        Mockito.verify(repository, Mockito.never()).save(book);
+    }
+
     @Test
     @DisplayName("Deve atualizar um livro")
     public void updateBookTest(){
@@ -168,10 +232,64 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve deletar um livro pelo id sem carrega-lo antes")
+    public void deleteByIdTest(){
+        Mockito.when(repository.removeById(1l)).thenReturn(1);
+        Mockito.when(repository.removeById(2l)).thenReturn(0);
+
+        assertThat(service.deleteById(1l)).isTrue();
+        assertThat(service.deleteById(2l)).isFalse();
+
+        Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve atualizar parcialmente um livro pelo id")
+    public void updateByIdTest(){
+        Long id = 1l;
+        Book updatedBook = createBook();
+        updatedBook.setId(id);
+        updatedBook.setTitle("Novo titulo");
+        Book changes = Book.builder().title("Novo titulo").build();
+
+        Mockito.when(repository.updateTitleAndAuthor(id, null, "Novo titulo", null)).thenReturn(1);
+        Mockito.when(repository.findById(id)).thenReturn(Optional.of(updatedBook));
+
+        Optional<Book> book = service.update(id, changes);
+
+        assertThat(book).contains(updatedBook);
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio ao atualizar pelo id um livro inexistente")
+    public void updateInexistentByIdTest(){
+        Mockito.when(repository.updateTitleAndAuthor(Mockito.eq(1l), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0);
+
+        Optional<Book> book = service.update(1l, Book.builder().title("Novo titulo").build());
+
+        assertThat(book).isEmpty();
+        Mockito.verify(repository, Mockito.never()).findById(1l);
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro de concorrencia ao atualizar um livro com versao desatualizada")
+    public void updateWithStaleVersionTest(){
+        Book changes = Book.builder().title("Novo titulo").version(3l).build();
+        Mockito.when(repository.updateTitleAndAuthor(1l, 3l, "Novo titulo", null)).thenReturn(0);
+        Mockito.when(repository.existsById(1l)).thenReturn(true);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.update(1l, changes));
+
+        assertThat(exception).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
     @Test
     @DisplayName("Deve filtrar livros pelas propriedades")
     public void findBookTest(){
         Book book = createBook();
+        book.setId(1l);
         PageRequest pageRequest = PageRequest.of(0, 10);
         List<Book> list = Arrays.asList(book);
         Page<Book> page = new PageImpl<Book>(list, pageRequest, 1   );
@@ -188,6 +306,178 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve reaproveitar os ids de uma pagina ja consultada ate a proxima escrita")
+    public void findBookFromQueryCacheTest(){
+        Book book = createBook();
+        book.setId(1l);
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        List<Book> list = Arrays.asList(book);
+
+        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenReturn(new PageImpl<Book>(list, pageRequest, 1));
+        Mockito.when(repository.findAllById(Mockito.anyIterable())).thenReturn(list);
+        Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.find(Book.builder().author("FULANO").build(), pageRequest);
+        Page<Book> cached = service.find(Book.builder().author("fulano").build(), pageRequest);
+
+        assertThat(cached.getContent()).isEqualTo(list);
+        assertThat(cached.getTotalElements()).isEqualTo(1);
+        Mockito.verify(repository, Mockito.times(1)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+
+        service.save(Book.builder().id(2l).isbn("456").author("Fulano").title("Outro").build());
+        service.find(Book.builder().author("fulano").build(), pageRequest);
+
+        Mockito.verify(repository, Mockito.times(2)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve pular a contagem quando o cliente nao precisar do total")
+    public void findWithoutCountTest(){
+        PageRequest pageRequest = PageRequest.of(1, 2);
+        List<Book> list = Arrays.asList(createBook(), createBook());
+        Mockito.when(repository.findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .thenReturn(new SliceImpl<>(list, pageRequest, true));
+
+        CountedPage<Book> result = service.find(new Book(), pageRequest, CountStrategy.NONE);
+
+        assertThat(result.getCountStrategy()).isEqualTo(CountStrategy.NONE);
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.hasNext()).isTrue();
+        Mockito.verify(repository, Mockito.never()).count(Mockito.any(Example.class));
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar a contagem do mesmo filtro mesmo apos escritas")
+    public void findWithCachedCountTest(){
+        PageRequest pageRequest = PageRequest.of(0, 1);
+        Mockito.when(repository.findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(createBook()), pageRequest, true));
+        Mockito.when(repository.count(Mockito.any(Example.class))).thenReturn(40l);
+        Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.find(Book.builder().author("Fulano").build(), pageRequest, CountStrategy.CACHED);
+        service.save(Book.builder().id(2l).isbn("456").author("Fulano").title("Outro").build());
+        CountedPage<Book> result = service.find(Book.builder().author("fulano").build(), pageRequest, CountStrategy.CACHED);
+
+        assertThat(result.getCountStrategy()).isEqualTo(CountStrategy.CACHED);
+        assertThat(result.getTotalElements()).isEqualTo(40);
+        Mockito.verify(repository, Mockito.times(2)).findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest));
+        Mockito.verify(repository, Mockito.times(1)).count(Mockito.any(Example.class));
+    }
+
+    @Test
+    @DisplayName("Deve estimar o total sem filtro e contar quando houver filtro")
+    public void findWithEstimatedCountTest(){
+        PageRequest pageRequest = PageRequest.of(0, 1);
+        Mockito.when(repository.findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(createBook()), pageRequest, true));
+        Mockito.when(repository.estimateCount()).thenReturn(OptionalLong.of(1000));
+        Mockito.when(repository.count(Mockito.any(Example.class))).thenReturn(3l);
+
+        CountedPage<Book> estimated = service.find(new Book(), pageRequest, CountStrategy.ESTIMATED);
+        CountedPage<Book> filtered = service.find(Book.builder().title("java").build(), pageRequest, CountStrategy.ESTIMATED);
+
+        assertThat(estimated.getCountStrategy()).isEqualTo(CountStrategy.ESTIMATED);
+        assertThat(estimated.getTotalElements()).isEqualTo(1000);
+        assertThat(filtered.getCountStrategy()).isEqualTo(CountStrategy.CACHED);
+        assertThat(filtered.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve informar o total exato quando a pagina for a ultima")
+    public void findLastPageWithoutCountTest(){
+        PageRequest pageRequest = PageRequest.of(3, 10);
+        Book first = createBook();
+        first.setId(31l);
+        Book second = createBook();
+        second.setId(32l);
+        Mockito.when(repository.findSlice(Mockito.any(Example.class), Mockito.eq(pageRequest)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(first, second), pageRequest, false));
+
+        CountedPage<Book> result = service.find(new Book(), pageRequest, CountStrategy.NONE);
+
+        assertThat(result.getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+        assertThat(result.getTotalElements()).isEqualTo(32);
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros apos o cursor informado")
+    public void findAfterTest(){
+        Book book = createBook();
+        List<Book> list = Arrays.asList(book);
+
+        Mockito.when(repository.findAfter(Mockito.any(Example.class), Mockito.eq(10l), Mockito.eq(5)))
+                .thenReturn(new SliceImpl<Book>(list, PageRequest.of(0, 5), false));
+
+        Slice<Book> result = service.findAfter(book, 10l, 5);
+
+        assertThat(result.getContent()).isEqualTo(list);
+        assertThat(result.hasNext()).isFalse();
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros salvos pelo indice textual em ordem de relevancia")
+    public void searchBookTest(){
+        Book byTitle = Book.builder().id(1l).isbn("111").author("Fulano").title("Dom Casmurro").build();
+        Book byAuthor = Book.builder().id(2l).isbn("222").author("Casmurro da Silva").title("Outro livro").build();
+
+        Mockito.when(repository.saveAndFlush(Mockito.any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(repository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(byAuthor, byTitle));
+
+        service.save(byTitle);
+        service.save(byAuthor);
+
+        List<Book> result = service.search("casm", 10);
+
+        assertThat(result).containsExactly(byTitle, byAuthor);
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros por isbn em blocos e guarda-los no cache por id")
+    public void getByIsbnsTest(){
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            isbns.add("isbn-" + i);
+        }
+        isbns.add(null);
+        isbns.add("isbn-0");
+        Book first = Book.builder().id(1l).isbn("isbn-0").build();
+        Book last = Book.builder().id(300l).isbn("isbn-299").build();
+        Mockito.when(repository.findByIsbnIn(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<String> chunk = invocation.getArgument(0);
+            return Stream.of(first, last).filter(book -> chunk.contains(book.getIsbn())).collect(Collectors.toList());
+        });
+
+        Map<String, Book> found = service.getByIsbns(isbns);
+
+        assertThat(found).containsOnlyKeys("isbn-0", "isbn-299");
+        Mockito.verify(repository, Mockito.times(2)).findByIsbnIn(Mockito.anyCollection());
+        assertThat(service.getByIds(Arrays.asList(1l, 300l))).containsOnlyKeys(1l, 300l);
+        Mockito.verify(repository, Mockito.never()).findAllById(Mockito.anyIterable());
+    }
+
+    @Test
+    @DisplayName("Deve exportar todos os livros e fechar o stream ao final")
+    public void exportTest(){
+        Book first = Book.builder().id(1l).isbn("111").build();
+        Book second = Book.builder().id(2l).isbn("222").build();
+        AtomicBoolean closed = new AtomicBoolean();
+        Mockito.when(repository.streamAll()).thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+
+        List<Book> exported = new ArrayList<>();
+        service.export(exported::add);
+
+        assertThat(exported).containsExactly(first, second);
+        assertThat(closed).isTrue();
+
+    }
+
     private Book createBook() {
         return Book.builder()
                 .isbn("123")
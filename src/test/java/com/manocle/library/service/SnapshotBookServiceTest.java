@@ -0,0 +1,102 @@
+package com.manocle.library.service;
+
+import com.manocle.library.exception.BusinessException;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.impl.SnapshotBookServiceImp;
+import com.manocle.library.service.snapshot.BookSnapshotStore;
+import com.manocle.library.service.snapshot.BookSnapshotWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotBookServiceTest {
+
+    @TempDir
+    Path dir;
+
+    Path path;
+    BookSnapshotStore store;
+    BookService service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        path = dir.resolve("books.snapshot");
+        write(Arrays.asList(createBook(1L, "123"), createBook(2L, "456")));
+        store = new BookSnapshotStore(path, null);
+        service = new SnapshotBookServiceImp(store);
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros do snapshot por id, isbn e filtro")
+    public void readTest() {
+        assertThat(service.getById(2L)).map(Book::getIsbn).contains("456");
+
+        Map<Long, Book> byIds = service.getByIds(Arrays.asList(1L, null, 3L));
+        Map<String, Book> byIsbns = service.getByIsbns(Arrays.asList("456", null, "789"));
+        Page<Book> page = service.find(Book.builder().isbn("45").build(), PageRequest.of(0, 10));
+
+        assertThat(byIds).containsOnlyKeys(1L);
+        assertThat(byIsbns).containsOnlyKeys("456");
+        assertThat(page.getContent()).extracting(Book::getId).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve recusar qualquer escrita")
+    public void rejectWritesTest() {
+        Book book = createBook(1L, "123");
+
+        assertThatThrownBy(() -> service.save(book)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.saveAll(Arrays.asList(book))).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.update(book)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.update(1L, book)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.delete(book)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.deleteById(1L))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Catálogo disponível apenas para leitura");
+        assertThat(service.getById(1L)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Deve mudar a versao do catalogo e exportar o novo snapshot apos a troca")
+    public void refreshTest() throws Exception {
+        long version = service.catalogVersion();
+
+        Thread.sleep(5);
+        write(Arrays.asList(createBook(1L, "123"), createBook(2L, "456"), createBook(3L, "789")));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        store.refresh();
+
+        List<Book> exported = new ArrayList<>();
+        service.export(exported::add);
+        assertThat(service.catalogVersion()).isNotEqualTo(version);
+        assertThat(exported).extracting(Book::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    private void write(List<Book> books) throws IOException {
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(path)) {
+            for (Book book : books) {
+                writer.add(book);
+            }
+            writer.finish();
+        }
+    }
+
+    private static Book createBook(Long id, String isbn) {
+        return Book.builder().id(id).title("As aventuras").author("Fulano").isbn(isbn).version(0L).build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.manocle.library.service.cache;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookQueryCacheTest {
+
+    BookQueryCache cache;
+
+    @BeforeEach
+    public void setUp(){
+        this.cache = new BookQueryCache(100, 30, 10);
+    }
+
+    @Test
+    @DisplayName("Deve guardar apenas os ids e o total da pagina")
+    public void putAndGetTest(){
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by("title"));
+        cache.put(cache.generation(), Book.builder().title("Aventuras").build(), pageRequest,
+                new PageImpl<>(Arrays.asList(createBook(3l), createBook(1l)), pageRequest, 5));
+
+        BookQueryCache.Entry entry = cache.get(Book.builder().title("aventuras").build(), PageRequest.of(0, 2, Sort.by("title"))).get();
+
+        assertThat(entry.getIds()).containsExactly(3l, 1l);
+        assertThat(entry.getTotal()).isEqualTo(5);
+        assertThat(cache.get(Book.builder().title("aventuras").build(), PageRequest.of(1, 2, Sort.by("title")))).isEmpty();
+        assertThat(cache.get(Book.builder().author("aventuras").build(), pageRequest)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve deixar de responder entradas de uma geracao anterior")
+    public void invalidateTest(){
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        Book filter = Book.builder().author("Fulano").build();
+        long generation = cache.generation();
+
+        cache.invalidate();
+        cache.put(generation, filter, pageRequest, new PageImpl<>(Arrays.asList(createBook(1l)), pageRequest, 1));
+
+        assertThat(cache.get(filter, pageRequest)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve trocar de geracao apenas quando a transacao da escrita for confirmada")
+    public void invalidateAfterCommitTest(){
+        long generation = cache.generation();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate();
+            assertThat(cache.generation()).isEqualTo(generation);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(cache.generation()).isEqualTo(generation + 1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Book createBook(Long id) {
+        return Book.builder()
+                .id(id)
+                .isbn("isbn-" + id)
+                .author("Fulano")
+                .title("As aventuras")
+                .build();
+    }
+}
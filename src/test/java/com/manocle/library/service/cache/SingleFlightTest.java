@@ -0,0 +1,118 @@
+package com.manocle.library.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    static final int CALLERS = 8;
+
+    ExecutorService executor;
+    Counter coalesced;
+    SingleFlight<String, String> flight;
+
+    @BeforeEach
+    public void setUp(){
+        executor = Executors.newFixedThreadPool(CALLERS);
+        coalesced = new SimpleMeterRegistry().counter("coalesced");
+        flight = new SingleFlight<>(coalesced);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve executar uma unica carga para chamadas simultaneas com a mesma chave")
+    public void coalesceTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Future<String>> results = callConcurrently("livro-1", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "Aventuras";
+        });
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Aventuras");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(flight.execute("livro-1", () -> "Nova carga")).isEqualTo("Nova carga");
+    }
+
+    @Test
+    @DisplayName("Deve repassar o erro da carga a todas as chamadas que aguardavam")
+    public void propagateErrorTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently("livro-1", () -> {
+            await(release);
+            throw new IllegalStateException("banco fora do ar");
+        });
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("banco fora do ar");
+        }
+    }
+
+    @Test
+    @DisplayName("Nao deve compartilhar cargas de chaves diferentes")
+    public void distinctKeysTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> flight.execute("livro-1", () -> {
+            await(release);
+            return "Primeiro";
+        }));
+
+        assertThat(flight.execute("livro-2", () -> "Segundo")).isEqualTo("Segundo");
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Primeiro");
+        assertThat(coalesced.count()).isZero();
+    }
+
+    private List<Future<String>> callConcurrently(String key, Supplier<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flight.execute(key, loader)));
+        }
+        return results;
+    }
+
+    private void awaitCoalesced(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced.count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalesced.count()).isEqualTo(count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
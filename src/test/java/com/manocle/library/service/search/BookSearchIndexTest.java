@@ -0,0 +1,95 @@
+package com.manocle.library.service.search;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp(){
+        this.index = new BookSearchIndex();
+        index.index(createBook(1l, "As aventuras de Tom Sawyer", "Mark Twain", "978-85-01"));
+        index.index(createBook(2l, "Memórias Póstumas", "Machado de Assis", "978-85-02"));
+        index.index(createBook(3l, "Aventuras na Bahia", "Jorge Amado", "978-85-03"));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livros por prefixo ignorando caixa e acentos")
+    public void searchByPrefixTest(){
+
+        assertThat(index.search("memo", 10)).containsExactly(2l);
+        assertThat(index.search("AVENT", 10)).containsExactlyInAnyOrder(1l, 3l);
+
+    }
+
+    @Test
+    @DisplayName("Deve exigir que todos os termos da busca sejam encontrados")
+    public void searchAllTermsTest(){
+
+        assertThat(index.search("aventuras bahia", 10)).containsExactly(3l);
+        assertThat(index.search("aventuras machado", 10)).isEmpty();
+
+    }
+
+    @Test
+    @DisplayName("Deve priorizar termo exato no titulo sobre prefixo e autor")
+    public void rankingTest(){
+
+        index.index(createBook(4l, "Outro livro", "Amado Batista", "978-85-04"));
+
+        assertThat(index.search("amado", 10)).containsExactly(3l, 4l);
+        assertThat(index.search("amado", 1)).containsExactly(3l);
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar apenas os melhores resultados, desempatando pelo id")
+    public void limitTest(){
+
+        for (long id = 10; id < 40; id++) {
+            index.index(createBook(id, id % 2 == 0 ? "Sertao" : "Sertanejo", "Autor", "isbn-" + id));
+        }
+
+        assertThat(index.search("sertao", 3)).containsExactly(10l, 12l, 14l);
+        assertThat(index.search("serta", 4)).containsExactly(10l, 11l, 12l, 13l);
+
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livro pelo isbn com ou sem separadores")
+    public void searchByIsbnTest(){
+
+        assertThat(index.search("9788502", 10)).containsExactly(2l);
+        assertThat(index.search("978-85-03", 10)).containsExactly(3l);
+
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizacoes e remocoes no indice")
+    public void updateAndRemoveTest(){
+
+        index.index(createBook(2l, "Dom Casmurro", "Machado de Assis", "978-85-02"));
+        index.remove(3l);
+
+        assertThat(index.search("memorias", 10)).isEmpty();
+        assertThat(index.search("casmurro", 10)).containsExactly(2l);
+        assertThat(index.search("bahia", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+
+    }
+
+    private Book createBook(Long id, String title, String author, String isbn) {
+        return Book.builder()
+                .id(id)
+                .title(title)
+                .author(author)
+                .isbn(isbn)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.manocle.library.service.snapshot;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BookSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    Path path;
+
+    @BeforeEach
+    public void setUp() {
+        path = dir.resolve("books.snapshot");
+    }
+
+    @Test
+    @DisplayName("Deve servir o arquivo existente e recarrega-lo quando for substituido")
+    public void reloadFileTest() throws IOException {
+        write(Arrays.asList(book(1L, "123")));
+        BookSnapshotStore store = new BookSnapshotStore(path, null);
+
+        store.refresh();
+        BookSnapshot first = store.current();
+        write(Arrays.asList(book(1L, "123"), book(2L, "456")));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        store.refresh();
+
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(store.current().size()).isEqualTo(2);
+        assertThat(store.current().findByIsbn("456")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Nao deve iniciar sem arquivo e sem origem para gera-lo")
+    public void nothingToServeTest() {
+        assertThatThrownBy(() -> new BookSnapshotStore(path, null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Nao deve iniciar com uma origem sem a tabela de livros nem apagar o arquivo existente")
+    public void sourceWithoutBookTableTest() throws IOException {
+        write(Arrays.asList(book(1L, "123")));
+        DriverManagerDataSource empty = new DriverManagerDataSource("jdbc:h2:mem:snapshot-empty;DB_CLOSE_DELAY=-1", "sa", "");
+
+        assertThatThrownBy(() -> new BookSnapshotStore(path, empty))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("book");
+        assertThat(BookSnapshot.open(path).findByIsbn("123")).isPresent();
+    }
+
+    private void write(List<Book> books) throws IOException {
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(path)) {
+            for (Book book : books) {
+                writer.add(book);
+            }
+            writer.finish();
+        }
+    }
+
+    private static Book book(Long id, String isbn) {
+        return Book.builder().id(id).title("Livro " + id).author("Fulano").isbn(isbn).version(0L).build();
+    }
+}
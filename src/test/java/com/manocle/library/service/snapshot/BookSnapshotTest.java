@@ -0,0 +1,125 @@
+package com.manocle.library.service.snapshot;
+
+import com.manocle.library.model.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BookSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    Path path;
+    BookSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        path = dir.resolve("books.snapshot");
+        snapshot = write(Arrays.asList(
+                book(1L, "Aventuras", "Fulano", "123", 0L),
+                book(2L, "Ação e Reação", "Ciclano", "456", 3L),
+                book(5L, "aventuras na praia", "Fulano", "789", null),
+                book(9L, null, "Beltrano", null, 1L)));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar um livro pelo id e pelo isbn")
+    public void findByIdAndIsbnTest() {
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.findById(2L)).contains(book(2L, "Ação e Reação", "Ciclano", "456", 3L));
+        assertThat(snapshot.findById(9L)).contains(book(9L, null, "Beltrano", null, 1L));
+        assertThat(snapshot.findById(3L)).isEmpty();
+        assertThat(snapshot.findByIsbn("789")).map(Book::getId).contains(5L);
+        assertThat(snapshot.findByIsbn("000")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar, ordenar e paginar como a busca do banco")
+    public void findTest() {
+        Page<Book> byTitle = snapshot.find(Book.builder().title("AVENTURA").build(), PageRequest.of(0, 10));
+        assertThat(byTitle.getContent()).extracting(Book::getId).containsExactly(1L, 5L);
+
+        Page<Book> sorted = snapshot.find(new Book(),
+                PageRequest.of(0, 2, Sort.by(Sort.Order.desc("author"), Sort.Order.asc("ignorado"))));
+        assertThat(sorted.getContent()).extracting(Book::getId).containsExactly(1L, 5L);
+        assertThat(sorted.getTotalElements()).isEqualTo(4);
+
+        Page<Book> secondPage = snapshot.find(new Book(), PageRequest.of(1, 2, Sort.by("title")));
+        assertThat(secondPage.getContent()).extracting(Book::getId).containsExactly(2L, 5L);
+    }
+
+    @Test
+    @DisplayName("Deve paginar por id e buscar por termos")
+    public void findAfterAndSearchTest() {
+        Slice<Book> slice = snapshot.findAfter(new Book(), 1L, 2);
+        assertThat(slice.getContent()).extracting(Book::getId).containsExactly(2L, 5L);
+        assertThat(slice.hasNext()).isTrue();
+
+        List<Book> found = snapshot.search("fulano praia", 10);
+        assertThat(found).extracting(Book::getId).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("Deve trocar o snapshot sem afetar quem ainda le o anterior")
+    public void refreshTest() throws Exception {
+        Files.delete(path);
+        DriverManagerDataSource source = new DriverManagerDataSource("jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1", "sa", "");
+        try (var connection = source.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("create table book (id bigint primary key, title varchar(255), author varchar(255),"
+                    + " isbn varchar(255), version bigint)");
+            statement.execute("insert into book values (1, 'Aventuras', 'Fulano', '123', 0)");
+        }
+        BookSnapshotStore store = new BookSnapshotStore(path, source);
+        BookSnapshot first = store.current();
+
+        try (var connection = source.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("insert into book values (2, 'Outro', 'Ciclano', '456', 0)");
+        }
+        store.refresh();
+
+        assertThat(store.current().findByIsbn("456")).isPresent();
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(first.findById(1L)).map(Book::getTitle).contains("Aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve exigir livros em ordem crescente de id")
+    public void ascendingIdsTest() throws IOException {
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(dir.resolve("outro.snapshot"))) {
+            writer.add(book(2L, "A", "B", "1", 0L));
+            assertThatThrownBy(() -> writer.add(book(1L, "A", "B", "2", 0L)))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(dir.resolve("outro.snapshot")).doesNotExist();
+    }
+
+    private BookSnapshot write(List<Book> books) throws IOException {
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(path)) {
+            for (Book book : books) {
+                writer.add(book);
+            }
+            writer.finish();
+        }
+        return BookSnapshot.open(path);
+    }
+
+    private static Book book(Long id, String title, String author, String isbn, Long version) {
+        return Book.builder().id(id).title(title).author(author).isbn(isbn).version(version).build();
+    }
+}
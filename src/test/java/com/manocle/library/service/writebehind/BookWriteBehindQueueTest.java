@@ -0,0 +1,240 @@
+package com.manocle.library.service.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manocle.library.model.entity.Book;
+import com.manocle.library.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+public class BookWriteBehindQueueTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    BookService service;
+
+    BookWriteBehindQueue queue;
+
+    AtomicLong ids = new AtomicLong();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve aceitar livros e salva-los em lote pelo escritor")
+    public void acceptAndSaveTest() throws Exception {
+        givenSaveAllAssignsIds();
+        queue = newQueue();
+        queue.start();
+
+        BookWriteBehindQueue.Write first = queue.accept(createNewBook("001")).get();
+        BookWriteBehindQueue.Write second = queue.accept(createNewBook("002")).get();
+
+        assertThat(first.getStatus()).isEqualTo(BookWriteBehindQueue.Status.PENDING);
+        awaitStatus(second.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        assertThat(queue.status(first.getTrackingId()).get().getStatus()).isEqualTo(BookWriteBehindQueue.Status.CREATED);
+        assertThat(queue.status(second.getTrackingId()).get().getBookId()).isNotNull();
+        awaitJournalEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar o livro cujo isbn ja esta cadastrado")
+    public void rejectDuplicatedIsbnTest() throws Exception {
+        BDDMockito.given(service.saveAll(Mockito.anyList())).willReturn(Collections.emptyList());
+        queue = newQueue();
+        queue.start();
+
+        BookWriteBehindQueue.Write write = queue.accept(createNewBook("001")).get();
+
+        awaitStatus(write.getTrackingId(), BookWriteBehindQueue.Status.REJECTED);
+        assertThat(queue.status(write.getTrackingId()).get().getError()).isEqualTo("Isbn já cadastrado");
+    }
+
+    @Test
+    @DisplayName("Deve reaplicar as escritas do journal apos reiniciar")
+    public void replayJournalTest() throws Exception {
+        queue = newQueue();
+        BookWriteBehindQueue.Write write = queue.accept(createNewBook("001")).get();
+        queue.stop();
+
+        givenSaveAllAssignsIds();
+        queue = newQueue();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.status(write.getTrackingId()).get().getStatus()).isEqualTo(BookWriteBehindQueue.Status.PENDING);
+        queue.start();
+
+        awaitStatus(write.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        queue.stop();
+
+        queue = newQueue();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve tentar novamente o lote quando o banco estiver indisponivel")
+    public void retryTest() throws Exception {
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willThrow(new DataAccessResourceFailureException("fora do ar"))
+                .willAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        queue = newQueue();
+        queue.start();
+
+        BookWriteBehindQueue.Write write = queue.accept(createNewBook("001")).get();
+
+        awaitStatus(write.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        Mockito.verify(service, Mockito.times(2)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve informar como criado o livro gravado por uma tentativa anterior do mesmo lote")
+    public void retryAfterHiddenCommitTest() throws Exception {
+        Book stored = createNewBook("001");
+        stored.setId(7L);
+        Book other = Book.builder().id(8L).isbn("002").author("Outro").title("Outro titulo").build();
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willThrow(new DataAccessResourceFailureException("conexao perdida no commit"))
+                .willReturn(Collections.emptyList());
+        BDDMockito.given(service.getByIsbns(Mockito.anyCollection()))
+                .willReturn(Map.of("001", stored, "002", other));
+        queue = newQueue();
+        queue.start();
+
+        BookWriteBehindQueue.Write applied = queue.accept(createNewBook("001")).get();
+        BookWriteBehindQueue.Write duplicated = queue.accept(createNewBook("002")).get();
+
+        awaitStatus(applied.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        awaitStatus(duplicated.getTrackingId(), BookWriteBehindQueue.Status.REJECTED);
+        assertThat(queue.status(applied.getTrackingId()).get().getBookId()).isEqualTo(7L);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar apenas o livro recusado pelo banco e seguir gravando os demais")
+    public void rejectBookRefusedByDatabaseTest() throws Exception {
+        BDDMockito.given(service.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> book.getTitle().length() > 255)) {
+                throw new DataIntegrityViolationException("value too long for column TITLE");
+            }
+            return assignIds(books);
+        });
+        queue = newQueue(3);
+        BookWriteBehindQueue.Write before = queue.accept(createNewBook("001")).get();
+        Book tooLong = createNewBook("002");
+        tooLong.setTitle("a".repeat(256));
+        BookWriteBehindQueue.Write refused = queue.accept(tooLong).get();
+        BookWriteBehindQueue.Write after = queue.accept(createNewBook("003")).get();
+        queue.start();
+
+        awaitStatus(refused.getTrackingId(), BookWriteBehindQueue.Status.REJECTED);
+        awaitStatus(before.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        awaitStatus(after.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+
+        BookWriteBehindQueue.Write later = queue.accept(createNewBook("004")).get();
+        awaitStatus(later.getTrackingId(), BookWriteBehindQueue.Status.CREATED);
+        awaitJournalEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve gravar no journal todas as escritas aceitas em paralelo")
+    public void concurrentAcceptTest() throws Exception {
+        queue = newQueue(400);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> accepts = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String isbn = String.format("%03d", i);
+                accepts.add(clients.submit(() -> queue.accept(createNewBook(isbn)).get()));
+            }
+            for (Future<?> accept : accepts) {
+                accept.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        queue.stop();
+
+        queue = newQueue(400);
+        assertThat(queue.size()).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("Deve recusar livros quando a fila estiver cheia")
+    public void fullQueueTest() throws Exception {
+        queue = newQueue();
+
+        assertThat(queue.accept(createNewBook("001"))).isPresent();
+        assertThat(queue.accept(createNewBook("002"))).isPresent();
+        assertThat(queue.accept(createNewBook("003"))).isEmpty();
+    }
+
+    private BookWriteBehindQueue newQueue() throws IOException {
+        return newQueue(2);
+    }
+
+    private BookWriteBehindQueue newQueue(int capacity) throws IOException {
+        return new BookWriteBehindQueue(service, new ObjectMapper(), directory.resolve("journal"),
+                capacity, 10, Duration.ofMillis(10), Duration.ofHours(1), 1000);
+    }
+
+    private void givenSaveAllAssignsIds() {
+        BDDMockito.given(service.saveAll(Mockito.anyList()))
+                .willAnswer(invocation -> assignIds(invocation.getArgument(0)));
+    }
+
+    private List<Book> assignIds(List<Book> books) {
+        books.forEach(book -> book.setId(ids.incrementAndGet()));
+        return new ArrayList<>(books);
+    }
+
+    private void awaitStatus(String trackingId, BookWriteBehindQueue.Status status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.status(trackingId).get().getStatus() != status && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(queue.status(trackingId).get().getStatus()).isEqualTo(status);
+    }
+
+    private void awaitJournalEmpty() throws Exception {
+        Path journal = directory.resolve("journal");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.size(journal) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(Files.size(journal)).isZero();
+    }
+
+    private static Book createNewBook(String isbn) {
+        return Book.builder().isbn(isbn).author("Artur").title("As aventuras").build();
+    }
+}